@@ -4,6 +4,7 @@ import ak.znetwork.znpcservers.commands.ZNCommand;
 import ak.znetwork.znpcservers.commands.list.DefaultCommand;
 import ak.znetwork.znpcservers.configuration.ZNConfig;
 import ak.znetwork.znpcservers.listeners.PlayerListeners;
+import ak.znetwork.znpcservers.listeners.WorldListeners;
 import ak.znetwork.znpcservers.utility.location.ZLocation;
 import ak.znetwork.znpcservers.manager.CommandsManager;
 import ak.znetwork.znpcservers.manager.ConfigManager;
@@ -11,15 +12,19 @@ import ak.znetwork.znpcservers.manager.NPCManager;
 import ak.znetwork.znpcservers.tasks.NPCManagerTask;
 import ak.znetwork.znpcservers.npc.ZNPC;
 import ak.znetwork.znpcservers.npc.enums.NPCType;
+import ak.znetwork.znpcservers.npc.grid.ZNPCGrid;
 import ak.znetwork.znpcservers.npc.path.ZNPCPathReader;
 import ak.znetwork.znpcservers.tasks.NPCSaveTask;
+import ak.znetwork.znpcservers.tasks.PlaceholderRefreshTask;
 import ak.znetwork.znpcservers.types.ConfigTypes;
 import ak.znetwork.znpcservers.user.ZNPCUser;
 import ak.znetwork.znpcservers.utility.location.ZLocationSerialize;
 import ak.znetwork.znpcservers.utility.MetricsLite;
 import ak.znetwork.znpcservers.npc.skin.ZNPCSkin;
 
+import ak.znetwork.znpcservers.utility.PlaceholderUtils;
 import ak.znetwork.znpcservers.utility.SchedulerUtils;
+import ak.znetwork.znpcservers.utility.Utils;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -83,6 +88,11 @@ public class ServersNPC extends JavaPlugin {
      */
     private CommandsManager commandsManager;
 
+    /**
+     * The npcs task.
+     */
+    private NPCManagerTask npcManagerTask;
+
     @Override
     public void onEnable() {
         // Load entity type cache
@@ -109,15 +119,24 @@ public class ServersNPC extends JavaPlugin {
         Bukkit.getOnlinePlayers().forEach(ServersNPC.this::setupNetty);
 
         // Init NPC task
-        new NPCManagerTask(this);
+        npcManagerTask = new NPCManagerTask(this);
         new NPCSaveTask(this, ConfigTypes.SAVE_DELAY);
 
+        // Refresh the cached placeholders
+        if (Utils.PLACEHOLDER_SUPPORT)
+            new PlaceholderRefreshTask(this, PlaceholderUtils.CACHE);
+
         // Register listeners
         new PlayerListeners(this);
+        new WorldListeners(this);
     }
 
     @Override
     public void onDisable() {
+        // Stop npc task
+        if (npcManagerTask != null)
+            npcManagerTask.shutdown();
+
         // Save configurations
         ConfigManager.getConfigurations().forEach(ZNConfig::save);
 
@@ -151,7 +170,12 @@ public class ServersNPC extends JavaPlugin {
      * Deletes all NPC for viewers.
      */
     public void removeAllViewers() {
-        ConfigTypes.NPC_LIST.forEach(ZNPC::deleteViewers);
+        ZNPCUser.beginDestroyBatch();
+        try {
+            ConfigTypes.NPC_LIST.forEach(ZNPC::deleteViewers);
+        } finally {
+            ZNPCUser.flushDestroyBatch();
+        }
     }
 
     /**
@@ -161,7 +185,7 @@ public class ServersNPC extends JavaPlugin {
      */
     public void setupNetty(Player player) {
         try {
-            NPCManager.getNpcUsers().add(new ZNPCUser(this, player));
+            NPCManager.registerUser(new ZNPCUser(this, player));
         } catch (Exception exception) {
             throw new RuntimeException("An exception occurred while trying to setup netty for player " + player.getName(), exception);
         }
@@ -199,7 +223,13 @@ public class ServersNPC extends JavaPlugin {
 
         ConfigTypes.NPC_LIST.remove(npc);
 
-        npc.deleteViewers();
+        // Removed from the npc task, which may be spawning the npc
+        npcManagerTask.execute(() -> {
+            ZNPCGrid.unregister(npc);
+
+            npc.deleteViewers();
+            npcManagerTask.getVisibility().forgetNPC(npc);
+        });
     }
 
     /**
@@ -5,6 +5,9 @@ import ak.znetwork.znpcservers.cache.enums.PackageType;
 
 import org.bukkit.Bukkit;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -198,6 +201,67 @@ public interface ClassCacheImpl {
          */
         public abstract Object typeOf();
 
+        /**
+         * Converts a loaded method, constructor or field (getter) to a method handle.
+         *
+         * The handle type is erased to {@code (Object...)Object} ({@code void} methods keep
+         * their return type), so it can be called with {@link MethodHandle#invokeExact}
+         * without knowing the minecraft classes.
+         *
+         * @param type The loaded method, constructor or field.
+         * @return     The method handle or {@code null} if the type was not loaded.
+         */
+        public static MethodHandle toHandle(Object type) {
+            if (type == null)
+                return null;
+
+            try {
+                MethodHandle methodHandle;
+                if (type instanceof Method) {
+                    Method method = (Method) type;
+                    method.setAccessible(true);
+
+                    methodHandle = MethodHandles.lookup().unreflect(method);
+                } else if (type instanceof Constructor) {
+                    Constructor<?> constructor = (Constructor<?>) type;
+                    constructor.setAccessible(true);
+
+                    methodHandle = MethodHandles.lookup().unreflectConstructor(constructor);
+                } else if (type instanceof Field) {
+                    Field field = (Field) type;
+                    field.setAccessible(true);
+
+                    methodHandle = MethodHandles.lookup().unreflectGetter(field);
+                } else throw new IllegalArgumentException(String.format("Cannot convert %s to a method handle", type));
+
+                MethodType genericType = MethodType.genericMethodType(methodHandle.type().parameterCount());
+                if (methodHandle.type().returnType() == void.class)
+                    genericType = genericType.changeReturnType(void.class);
+
+                return methodHandle.asType(genericType);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(String.format("Cannot access %s", type), e);
+            }
+        }
+
+        /**
+         * Converts a loaded method, constructor or field (getter) that every supported version has to a method handle.
+         *
+         * Fails when the plugin is loaded, instead of failing each time the handle is used.
+         *
+         * @param type The loaded method, constructor or field.
+         * @param name The type name, used in the error message.
+         * @return     The method handle.
+         * @throws IllegalStateException If the type was not loaded.
+         */
+        public static MethodHandle toRequiredHandle(Object type, String name) {
+            MethodHandle methodHandle = toHandle(type);
+            if (methodHandle == null)
+                throw new IllegalStateException(String.format("Cannot load %s for this server version", name));
+
+            return methodHandle;
+        }
+
         /**
          * Initializes & loads the given class.
          */
@@ -231,7 +295,10 @@ public interface ClassCacheImpl {
             @Override
             public Method typeOf() {
                 try {
-                    return getBuilderClass().getDeclaredMethod(getMethodName(), getParameterTypes());
+                    Method method = getBuilderClass().getDeclaredMethod(getMethodName(), getParameterTypes());
+                    method.setAccessible(true);
+
+                    return method;
                 } catch (NoSuchMethodException e) {
                     log();
                 }
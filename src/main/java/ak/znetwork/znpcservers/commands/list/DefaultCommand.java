@@ -12,8 +12,12 @@ import ak.znetwork.znpcservers.npc.enums.NPCItemSlot;
 import ak.znetwork.znpcservers.npc.enums.NPCType;
 import ak.znetwork.znpcservers.npc.path.ZNPCPathReader;
 import ak.znetwork.znpcservers.npc.path.writer.ZNPCPathWriter;
+import ak.znetwork.znpcservers.tasks.NPCTickExecutor;
 import ak.znetwork.znpcservers.types.ConfigTypes;
 import ak.znetwork.znpcservers.user.ZNPCUser;
+import ak.znetwork.znpcservers.utility.PlaceholderCache;
+import ak.znetwork.znpcservers.utility.PlaceholderUtils;
+import ak.znetwork.znpcservers.utility.Utils;
 
 import com.google.common.collect.Lists;
 import com.google.common.primitives.Ints;
@@ -141,7 +145,7 @@ public class DefaultCommand {
         if (ConfigTypes.NPC_LIST.isEmpty()) {
             sender.sendMessage(ChatColor.RED + "No NPC found.");
         } else
-            ConfigTypes.NPC_LIST.forEach(npc -> sender.sendMessage("&f&l * &a" + npc.getId() + " " + npc.getTextFormatted(npc.getHologram().getLines()) + " &7(&e" + npc.getLocation().getWorld().getName() + " " + npc.getLocation().getBlockX() + " " + npc.getLocation().getBlockY() + " " + npc.getLocation().getBlockZ() + "&7)"));
+            ConfigTypes.NPC_LIST.forEach(npc -> sender.sendMessage("&f&l * &a" + npc.getId() + " " + npc.getTextFormatted(npc.getLines().split(":")) + " &7(" + (npc.isSetup() ? "&e" + npc.getLocation().getWorld().getName() + " " + npc.getLocation().getBlockX() + " " + npc.getLocation().getBlockY() + " " + npc.getLocation().getBlockZ() : "&cworld not loaded") + "&7)"));
     }
 
     @ZNCommandSub(aliases = {"-id", "-skin"}, name = "skin", permission = "znpcs.cmd.skin")
@@ -165,6 +169,11 @@ public class DefaultCommand {
             return;
         }
 
+        if (!foundNPC.isSetup()) {
+            ConfigManager.getByType(ZNConfigType.MESSAGES).sendMessage(sender.getCommandSender(), ZNConfigValue.NPC_WORLD_NOT_LOADED);
+            return;
+        }
+
         String skin = args.get("skin");
 
         foundNPC.changeSkin(ZNPCSkin.forName(skin));
@@ -193,6 +202,11 @@ public class DefaultCommand {
             return;
         }
 
+        if (!foundNPC.isSetup()) {
+            ConfigManager.getByType(ZNConfigType.MESSAGES).sendMessage(sender.getCommandSender(), ZNConfigValue.NPC_WORLD_NOT_LOADED);
+            return;
+        }
+
         args.forEach((key, value) -> {
             NPCItemSlot npcItemSlot = NPCItemSlot.fromString(key.toUpperCase());
             Material material = Material.getMaterial(value.toUpperCase());
@@ -226,13 +240,23 @@ public class DefaultCommand {
             return;
         }
 
+        if (!foundNPC.isSetup()) {
+            ConfigManager.getByType(ZNConfigType.MESSAGES).sendMessage(sender.getCommandSender(), ZNConfigValue.NPC_WORLD_NOT_LOADED);
+            return;
+        }
+
         String lines = args.get("lines");
         try {
             List<String> stringList = Lists.reverse(Arrays.asList(lines.split(WHITESPACE)));
 
             // Update lines
             foundNPC.setLines(foundNPC.getTextFormatted(stringList.toArray(new String[0])));
-            foundNPC.getHologram().createHologram();
+
+            // The hologram lines are rendered from the npc task, so they are changed there
+            serversNPC.getNpcManagerTask().execute(() -> {
+                if (foundNPC.isSetup())
+                    foundNPC.getHologram().updateLines();
+            });
 
             ConfigManager.getByType(ZNConfigType.MESSAGES).sendMessage(sender.getCommandSender(), ZNConfigValue.SUCCESS);
         } catch (Exception exception) {
@@ -261,6 +285,11 @@ public class DefaultCommand {
             return;
         }
 
+        if (!foundNPC.isSetup()) {
+            ConfigManager.getByType(ZNConfigType.MESSAGES).sendMessage(sender.getCommandSender(), ZNConfigValue.NPC_WORLD_NOT_LOADED);
+            return;
+        }
+
         try {
             if (foundNPC.isHasLookAt()) foundNPC.toggleLookAt();
 
@@ -295,6 +324,11 @@ public class DefaultCommand {
             return;
         }
 
+        if (!foundNPC.isSetup()) {
+            ConfigManager.getByType(ZNConfigType.MESSAGES).sendMessage(sender.getCommandSender(), ZNConfigValue.NPC_WORLD_NOT_LOADED);
+            return;
+        }
+
         NPCType npcType = NPCType.fromString(args.get("type").toUpperCase());
 
         if (npcType == null) {
@@ -419,6 +453,11 @@ public class DefaultCommand {
             return;
         }
 
+        if (!foundNPC.isSetup()) {
+            ConfigManager.getByType(ZNConfigType.MESSAGES).sendMessage(sender.getCommandSender(), ZNConfigValue.NPC_WORLD_NOT_LOADED);
+            return;
+        }
+
         try {
             if (args.containsKey("holo")) foundNPC.toggleHolo();
             else if (args.containsKey("glow")) foundNPC.toggleGlow(args.get("glow"), true);
@@ -453,6 +492,11 @@ public class DefaultCommand {
             return;
         }
 
+        if (!foundNPC.isSetup()) {
+            ConfigManager.getByType(ZNConfigType.MESSAGES).sendMessage(sender.getCommandSender(), ZNConfigValue.NPC_WORLD_NOT_LOADED);
+            return;
+        }
+
         String[] value = args.get("customize").split(WHITESPACE);
 
         NPCType npcType = foundNPC.getNpcType();
@@ -492,7 +536,7 @@ public class DefaultCommand {
             return;
         }
 
-        ZNPCUser znpcUser = NPCManager.getNpcUsers().stream().filter(znpcUser1 -> znpcUser1.getUuid().equals(sender.getPlayer().getUniqueId())).findFirst().orElse(null);
+        ZNPCUser znpcUser = NPCManager.findUser(sender.getPlayer().getUniqueId());
         if (znpcUser == null) return;
 
         if (args.containsKey("set")) {
@@ -575,6 +619,72 @@ public class DefaultCommand {
             return;
         }
 
+        if (!foundNPC.isSetup()) {
+            ConfigManager.getByType(ZNConfigType.MESSAGES).sendMessage(sender.getCommandSender(), ZNConfigValue.NPC_WORLD_NOT_LOADED);
+            return;
+        }
+
         sender.getPlayer().teleport(foundNPC.getLocation());
     }
+
+    @ZNCommandSub(aliases = {"-id", "-priority"}, name = "priority", permission = "znpcs.cmd.priority")
+    public void priority(ZNCommandSender sender, Map<String, String> args) {
+        if (args.size() < 2) {
+            ConfigManager.getByType(ZNConfigType.MESSAGES).sendMessage(sender.getCommandSender(), ZNConfigValue.INCORRECT_USAGE);
+            return;
+        }
+
+        Integer id = Ints.tryParse(args.get("id"));
+        Integer priority = Ints.tryParse(args.get("priority"));
+
+        if (id == null || priority == null) {
+            ConfigManager.getByType(ZNConfigType.MESSAGES).sendMessage(sender.getCommandSender(), ZNConfigValue.INVALID_NUMBER);
+            return;
+        }
+
+        ZNPC foundNPC = ConfigTypes.NPC_LIST.stream().filter(npc -> npc.getId() == id).findFirst().orElse(null);
+
+        if (foundNPC == null) {
+            ConfigManager.getByType(ZNConfigType.MESSAGES).sendMessage(sender.getCommandSender(), ZNConfigValue.NPC_NOT_FOUND);
+            return;
+        }
+
+        foundNPC.setPriority(priority);
+
+        ConfigManager.getByType(ZNConfigType.MESSAGES).sendMessage(sender.getCommandSender(), ZNConfigValue.SUCCESS);
+    }
+
+    @ZNCommandSub(aliases = {}, name = "stats", permission = "znpcs.cmd.stats")
+    public void stats(ZNCommandSender sender, Map<String, String> args) {
+        NPCTickExecutor executor = serversNPC.getNpcManagerTask().getExecutor();
+
+        sender.sendMessage("&6&m------------------------------------------");
+        sender.sendMessage("&a&lNPC TICK STATS");
+        sender.sendMessage("&7Ticks: &e" + executor.getTicks());
+        sender.sendMessage("&7Last tick: &e" + toMillis(executor.getLastTickNanos()) + "ms");
+        sender.sendMessage("&7Average tick: &e" + toMillis(executor.getAverageTickNanos()) + "ms");
+        sender.sendMessage("&7Max tick: &e" + toMillis(executor.getMaxTickNanos()) + "ms");
+        sender.sendMessage("&7Overruns: &e" + executor.getOverruns());
+        sender.sendMessage("&7Skipped ticks: &e" + executor.getSkippedTicks());
+        if (Utils.PLACEHOLDER_SUPPORT) {
+            PlaceholderCache placeholderCache = PlaceholderUtils.CACHE;
+
+            sender.sendMessage("&a&lPLACEHOLDER CACHE");
+            sender.sendMessage("&7Entries: &e" + placeholderCache.size());
+            sender.sendMessage("&7Hits: &e" + placeholderCache.getHits());
+            sender.sendMessage("&7Misses: &e" + placeholderCache.getMisses());
+            sender.sendMessage("&7Refreshes: &e" + placeholderCache.getRefreshes());
+        }
+        sender.sendMessage("&6&m------------------------------------------");
+    }
+
+    /**
+     * Converts nanoseconds to a milliseconds string.
+     *
+     * @param nanos The nanoseconds.
+     * @return      The milliseconds string (2 decimals).
+     */
+    private static String toMillis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000D);
+    }
 }
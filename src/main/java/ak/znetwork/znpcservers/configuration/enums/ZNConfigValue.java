@@ -6,6 +6,7 @@ import ak.znetwork.znpcservers.npc.ZNPC;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
 
 import lombok.Getter;
 
@@ -24,6 +25,16 @@ public enum ZNConfigValue {
 
     // Config
     VIEW_DISTANCE(ZNConfigType.CONFIG, 32, Integer.class), // by Block distance
+    VIEW_MOVE_THRESHOLD(ZNConfigType.CONFIG, 1, Integer.class), // by Block distance, before the npcs visibility is checked again
+    VIEW_DESPAWN_DISTANCE(ZNConfigType.CONFIG, 36, Integer.class), // by Block distance, must be greater than the view distance
+    VIEW_DWELL_TICKS(ZNConfigType.CONFIG, 20, Integer.class), // Minimum ticks before a spawned npc can be deleted again (and vice versa)
+    MAX_VISIBLE_NPCS(ZNConfigType.CONFIG, 0, Integer.class), // Maximum npcs visible at once for each player, 0 = unlimited
+    NPC_SPAWN_RATE(ZNConfigType.CONFIG, 5, Integer.class), // Maximum npcs spawned per tick for each player, 0 = unlimited
+    PACKET_BATCHING(ZNConfigType.CONFIG, true, Boolean.class), // Flush the npc packets once per tick for each player
+    PACKET_ENCODE_ONCE(ZNConfigType.CONFIG, false, Boolean.class), // Encode the packets sent to all viewers once, not compatible with protocol translation plugins (ViaVersion..)
+    VIEW_PARALLELISM(ZNConfigType.CONFIG, 0, Integer.class), // Threads used to check the npcs visibility, 0 = disabled
+    PLACEHOLDER_REFRESH_TICKS(ZNConfigType.CONFIG, 20, Integer.class), // Ticks before a resolved placeholder is resolved again, 0 = every tick
+    PLACEHOLDER_REFRESH_INTERVALS(ZNConfigType.CONFIG, new ArrayList<>(Collections.singletonList("%server_online%:40")), String.class), // Refresh ticks for specific placeholders (placeholder:ticks)
     REPLACE_SYMBOL(ZNConfigType.CONFIG, "-", String.class), // Replace spaces symbol , default = " ' "
     SAVE_NPCS_DELAY_SECONDS(ZNConfigType.CONFIG, 60 * (10), Integer.class), // Save NPC delay (10 minutes)
     MAX_PATH_LOCATIONS(ZNConfigType.CONFIG, 500, Integer.class),
@@ -35,7 +46,8 @@ public enum ZNConfigValue {
     COMMAND_NOT_FOUND(ZNConfigType.MESSAGES, "&cThis command was not found.", String.class),
     COMMAND_ERROR(ZNConfigType.MESSAGES, "&cThere was an error executing the command, see the console for more information.", String.class),
     INVALID_NUMBER(ZNConfigType.MESSAGES, "&cHey!, The inserted number/id does not look like a number..", String.class),
-    NPC_NOT_FOUND(ZNConfigType.MESSAGES, "&cHey!, I couldnt find a npc with this id.", String.class);
+    NPC_NOT_FOUND(ZNConfigType.MESSAGES, "&cHey!, I couldnt find a npc with this id.", String.class),
+    NPC_WORLD_NOT_LOADED(ZNConfigType.MESSAGES, "&cHey!, The world of this npc is not loaded.", String.class);
 
     /**
      * The configuration type.
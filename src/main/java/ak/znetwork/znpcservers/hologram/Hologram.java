@@ -1,17 +1,22 @@
 package ak.znetwork.znpcservers.hologram;
 
 import ak.znetwork.znpcservers.npc.ZNPC;
+import ak.znetwork.znpcservers.npc.packet.ZNPCMetadata;
+import ak.znetwork.znpcservers.npc.packet.ZNPCMoveTracker;
 import ak.znetwork.znpcservers.types.ClassTypes;
 import ak.znetwork.znpcservers.types.ConfigTypes;
+import ak.znetwork.znpcservers.user.ZNPCUser;
 import ak.znetwork.znpcservers.utility.PlaceholderUtils;
-import ak.znetwork.znpcservers.utility.ReflectionUtils;
 import ak.znetwork.znpcservers.utility.Utils;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -36,9 +41,19 @@ public class Hologram {
     private static final String WHITESPACE = " ";
 
     /**
-     * A list of entities (Holograms).
+     * The hologram lines, replaced by a new list when the lines change.
      */
-    private final List<Object> entityArmorStands;
+    private volatile List<Line> hologramLines;
+
+    /**
+     * The last text rendered for each viewer & line.
+     */
+    private final Map<ZNPCUser, RenderedLines> renderedLines;
+
+    /**
+     * Determines if any line depends on the viewer.
+     */
+    private volatile boolean dynamic;
 
     /**
      * The npc.
@@ -61,7 +76,8 @@ public class Hologram {
         this.npc = npc;
         this.location = location;
 
-        this.entityArmorStands = new ArrayList<>();
+        this.hologramLines = Collections.emptyList();
+        this.renderedLines = new ConcurrentHashMap<>();
         this.createHologram();
     }
 
@@ -72,105 +88,276 @@ public class Hologram {
         getNpc().getViewers().forEach(this::delete);
 
         try {
-            getEntityArmorStands().clear();
+            String[] lines = getLines();
 
-            double y = 0;
-            for (String line : getLines()) {
-                Object armorStand = ClassTypes.ENTITY_CONSTRUCTOR.newInstance(ClassTypes.GET_HANDLE_WORLD_METHOD.invoke(getLocation().getWorld()), getLocation().getX(), (getLocation().getY() - 0.15) + (y), getLocation().getZ());
+            List<Line> hologramLines = new ArrayList<>(lines.length);
+            for (int i = 0; i < lines.length; i++) {
+                hologramLines.add(createLine(HologramLine.compile(lines[i]), i));
+            }
 
-                ClassTypes.SET_CUSTOM_NAME_VISIBLE_METHOD.invoke(armorStand, line.length() >= 1);
-                if (Utils.versionNewer(13))
-                    ClassTypes.SET_CUSTOM_NAME_NEW_METHOD.invoke(armorStand, getStringNewestVersion(null, Utils.color(line)));
-                else
-                    ClassTypes.SET_CUSTOM_NAME_OLD_METHOD.invoke(armorStand, Utils.color(line));
+            publish(hologramLines);
+            getRenderedLines().clear();
 
-                ClassTypes.SET_INVISIBLE_METHOD.invoke(armorStand, true);
+            if (getNpc().isHasToggleHolo())
+                getNpc().getViewers().forEach(this::spawn);
+        } catch (Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+    }
 
-                getEntityArmorStands().add(armorStand);
+    /**
+     * Updates the hologram lines after the npc lines changed.
+     *
+     * <p>The unchanged lines keep their entity, the changed lines are renamed in place
+     * and only the added or removed lines are spawned or destroyed for the viewers.</p>
+     *
+     * <p>Must be called from the npc task thread, which also renders the lines for each
+     * viewer on the same entities.</p>
+     */
+    public void updateLines() {
+        try {
+            String[] lines = getLines();
+            List<Line> oldLines = getHologramLines();
+
+            List<Line> hologramLines = new ArrayList<>(lines.length);
+            List<Line> renamedLines = new ArrayList<>();
+            for (int i = 0; i < lines.length; i++) {
+                if (i >= oldLines.size()) {
+                    hologramLines.add(createLine(HologramLine.compile(lines[i]), i));
+                    continue;
+                }
+
+                Line oldLine = oldLines.get(i);
+                if (oldLine.getTemplate().getLine().equals(lines[i])) {
+                    hologramLines.add(oldLine);
+                    continue;
+                }
+
+                // Rename the changed line, the entity is kept
+                HologramLine template = HologramLine.compile(lines[i]);
+
+                ClassTypes.SET_CUSTOM_NAME_VISIBLE_METHOD.invoke(oldLine.getArmorStand(), template.isVisible());
+                setCustomName(oldLine.getArmorStand(), template.getStaticText());
+
+                Line line = new Line(template, oldLine.getArmorStand(), oldLine.getEntityId(), oldLine.getMoveTracker(), oldLine.getMetadata());
+                hologramLines.add(line);
+                renamedLines.add(line);
+            }
 
-                y+=HOLOGRAM_SPACE;
+            publish(hologramLines);
+
+            // The hidden hologram is sent again when toggled
+            if (!getNpc().isHasToggleHolo())
+                return;
+
+            // The dynamic lines are sent on the next name update
+            for (Line line : renamedLines) {
+                if (line.getTemplate().isDynamic())
+                    continue;
+
+                for (ZNPCUser user : getNpc().getViewers()) {
+                    sendMetadata(user, line);
+                }
             }
 
-            getNpc().getViewers().forEach(this::spawn);
-        } catch (IllegalAccessException | InstantiationException | InvocationTargetException operationException) {
-            throw new AssertionError(operationException);
+            // Destroy the removed lines
+            if (lines.length < oldLines.size()) {
+                int[] armorStandIds = new int[oldLines.size() - lines.length];
+                for (int i = lines.length; i < oldLines.size(); i++) {
+                    armorStandIds[i - lines.length] = oldLines.get(i).getEntityId();
+                }
+
+                for (ZNPCUser user : getNpc().getViewers()) {
+                    user.destroyEntities(armorStandIds);
+                }
+            }
+
+            // Spawn the added lines
+            for (int i = oldLines.size(); i < hologramLines.size(); i++) {
+                for (ZNPCUser user : getNpc().getViewers()) {
+                    spawnLine(user, hologramLines.get(i));
+                }
+            }
+        } catch (Throwable throwable) {
+            throw new AssertionError(throwable);
         }
     }
 
+    /**
+     * Creates the entity for a hologram line.
+     *
+     * @param template The compiled line.
+     * @param index    The line index.
+     * @return         The hologram line.
+     */
+    private Line createLine(HologramLine template, int index) throws Throwable {
+        Object armorStand = ClassTypes.ENTITY_CONSTRUCTOR.newInstance(ClassTypes.GET_HANDLE_WORLD_METHOD.invoke(getLocation().getWorld()), getLocation().getX(), (getLocation().getY() - 0.15) + (index * HOLOGRAM_SPACE), getLocation().getZ());
+
+        // Static lines are rendered once for all viewers
+        ClassTypes.SET_CUSTOM_NAME_VISIBLE_METHOD.invoke(armorStand, template.isVisible());
+        setCustomName(armorStand, template.getStaticText());
+
+        ClassTypes.SET_INVISIBLE_METHOD.invoke(armorStand, true);
+
+        int entityId = (int) (Object) ClassTypes.GET_ENTITY_ID_HANDLE.invokeExact(armorStand);
+        return new Line(template, armorStand, entityId, new ZNPCMoveTracker(), new ZNPCMetadata());
+    }
+
+    /**
+     * Publishes the new hologram lines.
+     *
+     * @param hologramLines The new hologram lines.
+     */
+    private void publish(List<Line> hologramLines) {
+        setDynamic(hologramLines.stream().anyMatch(line -> line.getTemplate().isDynamic()));
+        setHologramLines(Collections.unmodifiableList(hologramLines));
+    }
+
     /**
      * Spawn hologram for player.
      *
-     * @param player The player to show the hologram.
+     * @param user The player to show the hologram.
      */
-    public void spawn(Player player) {
-        getEntityArmorStands().forEach(entityArmorStand -> {
+    public void spawn(ZNPCUser user) {
+        List<Line> hologramLines = getHologramLines();
+
+        // The next name update sends the full entity data
+        hologramLines.forEach(line -> line.getMetadata().forget(user));
+        getRenderedLines().remove(user);
+
+        for (Line line : hologramLines) {
             try {
-                Object entityPlayerPacketSpawn = ClassTypes.PACKET_PLAY_OUT_SPAWN_ENTITY_CONSTRUCTOR.newInstance(entityArmorStand);
-                ReflectionUtils.sendPacket(player, entityPlayerPacketSpawn);
-            } catch (IllegalAccessException | InstantiationException | InvocationTargetException operationException) {
-                delete(player);
+                spawnLine(user, line);
+            } catch (Throwable throwable) {
+                delete(user);
 
-                throw new AssertionError(operationException);
+                throw new AssertionError(throwable);
             }
-        });
+        }
+    }
+
+    /**
+     * Spawns a hologram line for a player.
+     *
+     * @param user The player to show the line.
+     * @param line The hologram line.
+     */
+    private void spawnLine(ZNPCUser user, Line line) throws Throwable {
+        Object entityPlayerPacketSpawn = (Object) ClassTypes.PACKET_PLAY_OUT_SPAWN_ENTITY_HANDLE.invokeExact(line.getArmorStand());
+        user.sendPacket(entityPlayerPacketSpawn);
+
+        // Static lines are not updated again, so the entity data is sent now
+        if (!line.getTemplate().isDynamic())
+            sendMetadata(user, line);
     }
 
     /**
      * Delete/hide hologram for player.
      *
-     * @param player The player to remove the hologram.
+     * @param user The player to remove the hologram.
      */
-    public void delete(Player player) {
-        getEntityArmorStands().forEach(entityArmorStand -> {
-            try {
-                int armorStandId = (int) ClassTypes.GET_ENTITY_ID.invoke(entityArmorStand);
+    public void delete(ZNPCUser user) {
+        List<Line> hologramLines = getHologramLines();
 
-                ReflectionUtils.sendPacket(player, ClassTypes.PACKET_PLAY_OUT_ENTITY_DESTROY_CONSTRUCTOR.newInstance(new int[]{armorStandId}));
-            } catch (IllegalAccessException | InstantiationException | InvocationTargetException operationException) {
-                throw new AssertionError(operationException);
-            }
-        });
+        hologramLines.forEach(line -> line.getMetadata().forget(user));
+        getRenderedLines().remove(user);
+
+        // Destroy all lines with a single packet
+        int[] armorStandIds = new int[hologramLines.size()];
+        for (int i = 0; i < armorStandIds.length; i++) {
+            armorStandIds[i] = hologramLines.get(i).getEntityId();
+        }
+
+        if (armorStandIds.length > 0)
+            user.destroyEntities(armorStandIds);
     }
 
     /**
      * Updates the hologram text.
+     *
+     * Only the lines that depend on the viewer are updated, a line is only sent
+     * again when its rendered text changed for the player.
+     *
+     * @param user   The player to update the hologram text.
+     * @param player The player of the user, taken from the players snapshot.
      */
-    public void updateNames(Player player) {
-        for (int i = 0; i < getLines().length; i++) {
-            if (i >= getEntityArmorStands().size())
-                break;
+    public void updateNames(ZNPCUser user, Player player) {
+        if (!isDynamic())
+            return;
 
-            Object armorStand = getEntityArmorStands().get(i);
-            try {
-                String line = getLines()[i].replace(ConfigTypes.SPACE_SYMBOL, WHITESPACE);
+        List<Line> hologramLines = getHologramLines();
+
+        RenderedLines rendered = getRenderedLines().get(user);
+        if (rendered == null || rendered.getLines() != hologramLines)
+            // Keep the texts of the lines that did not change
+            getRenderedLines().put(user, rendered = new RenderedLines(hologramLines, rendered));
 
-                if (Utils.versionNewer(13))
-                    ClassTypes.SET_CUSTOM_NAME_NEW_METHOD.invoke(armorStand, getStringNewestVersion(player, Utils.color(getLines()[i])));
-                else
-                    ClassTypes.SET_CUSTOM_NAME_OLD_METHOD.invoke(armorStand, Utils.color(Utils.PLACEHOLDER_SUPPORT ? PlaceholderUtils.getWithPlaceholders(player, getLines()[i]) : line));
+        String[] lastRendered = rendered.getTexts();
+        for (int i = 0; i < lastRendered.length; i++) {
+            Line line = hologramLines.get(i);
+            if (!line.getTemplate().isDynamic())
+                continue;
 
-                Object dataWatcherObject = ClassTypes.GET_DATA_WATCHER_METHOD.invoke(armorStand);
+            String text = line.getTemplate().render(player);
+            // The line is sent once its placeholders are resolved
+            if (text == null || text.equals(lastRendered[i]))
+                continue;
 
-                int entity_id = (Integer) ClassTypes.GET_ENTITY_ID.invoke(armorStand);
-                ReflectionUtils.sendPacket(player, ClassTypes.PACKET_PLAY_OUT_ENTITY_META_DATA_CONSTRUCTOR.newInstance(entity_id, dataWatcherObject, true));
-            } catch (IllegalAccessException | InvocationTargetException | InstantiationException operationException) {
-                throw new AssertionError(operationException);
+            try {
+                setCustomName(line.getArmorStand(), text);
+                sendMetadata(user, line);
+
+                lastRendered[i] = text;
+            } catch (Throwable throwable) {
+                throw new AssertionError(throwable);
             }
         }
     }
 
+    /**
+     * Sets the custom name of a hologram line.
+     *
+     * @param armorStand The line entity.
+     * @param text       The rendered text.
+     */
+    private void setCustomName(Object armorStand, String text) throws IllegalAccessException, InstantiationException, InvocationTargetException {
+        if (Utils.versionNewer(13))
+            ClassTypes.SET_CUSTOM_NAME_NEW_METHOD.invoke(armorStand, ClassTypes.I_CHAT_BASE_COMPONENT_A_CONSTRUCTOR.newInstance(text));
+        else
+            ClassTypes.SET_CUSTOM_NAME_OLD_METHOD.invoke(armorStand, text);
+    }
+
+    /**
+     * Sends the entity data of a hologram line that changed for a player.
+     *
+     * @param user The player.
+     * @param line The hologram line.
+     */
+    private void sendMetadata(ZNPCUser user, Line line) throws Throwable {
+        Object dataWatcherObject = (Object) ClassTypes.GET_DATA_WATCHER_HANDLE.invokeExact(line.getArmorStand());
+
+        // Only send the entity data that changed for the player
+        Object metadataPacket = line.getMetadata().createPacket(user, line.getEntityId(), dataWatcherObject);
+        if (metadataPacket != null)
+            user.sendPacket(metadataPacket);
+    }
+
     /**
      * Updates the hologram location.
      */
     public void updateLocation() {
-        getEntityArmorStands().forEach(o -> {
-            try {
-                Object packet = ClassTypes.PACKET_PLAY_OUT_ENTITY_TELEPORT_CONSTRUCTOR.newInstance(o);
-                getNpc().getViewers().forEach(player -> ReflectionUtils.sendPacket(player, packet));
-            } catch (IllegalAccessException | InvocationTargetException | InstantiationException operationException) {
-                throw new AssertionError("An exception occurred while trying to update location for hologram", operationException);
+        try {
+            double y = 0;
+            for (Line line : getHologramLines()) {
+                Object packet = line.getMoveTracker().createMovePacket(line.getEntityId(), line.getArmorStand(),
+                        getLocation().getX(), (getLocation().getY() - 0.15) + y, getLocation().getZ(), getLocation().getYaw(), getLocation().getPitch());
+                ZNPCUser.broadcast(getNpc().getViewers(), packet);
+
+                y+=HOLOGRAM_SPACE;
             }
-        });
+        } catch (Throwable throwable) {
+            throw new AssertionError("An exception occurred while trying to update location for hologram", throwable);
+        }
     }
 
     /**
@@ -183,17 +370,17 @@ public class Hologram {
 
         try {
             double y = 0;
-            for (Object o : getEntityArmorStands()) {
-                ClassTypes.SET_LOCATION_METHOD.invoke(o, getLocation().getX(), (getLocation().getY() - 0.15) + y,
-                        getLocation().getZ(), getLocation().getYaw(), getLocation().getPitch());
+            for (Line line : getHologramLines()) {
+                ClassTypes.SET_LOCATION_HANDLE.invokeExact(line.getArmorStand(), (Object) getLocation().getX(), (Object) ((getLocation().getY() - 0.15) + y),
+                        (Object) getLocation().getZ(), (Object) getLocation().getYaw(), (Object) getLocation().getPitch());
 
                 y+=HOLOGRAM_SPACE;
             }
-
-            updateLocation();
-        } catch (IllegalAccessException | InvocationTargetException operationException) {
-            throw new AssertionError(operationException);
+        } catch (Throwable throwable) {
+            throw new AssertionError(throwable);
         }
+
+        updateLocation();
     }
 
     /**
@@ -212,12 +399,104 @@ public class Hologram {
      */
     public Object getStringNewestVersion(Player player, String text) {
         try {
-            return ClassTypes.I_CHAT_BASE_COMPONENT_A_CONSTRUCTOR.newInstance(Utils.PLACEHOLDER_SUPPORT && player != null ?
-                    PlaceholderUtils.getWithPlaceholders(player, text) :
+            String resolved = Utils.PLACEHOLDER_SUPPORT && player != null ? PlaceholderUtils.getCachedWithPlaceholders(player, text) : null;
+            return ClassTypes.I_CHAT_BASE_COMPONENT_A_CONSTRUCTOR.newInstance(resolved != null ?
+                    resolved :
                     text.replace(ConfigTypes.SPACE_SYMBOL, WHITESPACE)
             );
         } catch (InstantiationException | IllegalAccessException | InvocationTargetException operationException) {
             throw new AssertionError(operationException);
         }
     }
+
+    /**
+     * A hologram line & its entity, a renamed line is replaced by a new instance.
+     */
+    @Getter
+    public static final class Line {
+
+        /**
+         * The compiled line.
+         */
+        private final HologramLine template;
+
+        /**
+         * The line entity.
+         */
+        private final Object armorStand;
+
+        /**
+         * The line entity id.
+         */
+        private final int entityId;
+
+        /**
+         * The last position sent for the line.
+         */
+        private final ZNPCMoveTracker moveTracker;
+
+        /**
+         * The entity data sent to each viewer for the line.
+         */
+        private final ZNPCMetadata metadata;
+
+        /**
+         * Creates a new hologram line.
+         *
+         * @param template    The compiled line.
+         * @param armorStand  The line entity.
+         * @param entityId    The line entity id.
+         * @param moveTracker The last position sent for the line.
+         * @param metadata    The entity data sent to each viewer for the line.
+         */
+        private Line(HologramLine template,
+                     Object armorStand,
+                     int entityId,
+                     ZNPCMoveTracker moveTracker,
+                     ZNPCMetadata metadata) {
+            this.template = template;
+            this.armorStand = armorStand;
+            this.entityId = entityId;
+            this.moveTracker = moveTracker;
+            this.metadata = metadata;
+        }
+    }
+
+    /**
+     * The texts rendered for a viewer & the lines they were rendered for.
+     */
+    @Getter
+    public static final class RenderedLines {
+
+        /**
+         * The hologram lines.
+         */
+        private final List<Line> lines;
+
+        /**
+         * The last text rendered for each line.
+         */
+        private final String[] texts;
+
+        /**
+         * Creates the rendered texts for new hologram lines.
+         *
+         * @param lines    The hologram lines.
+         * @param previous The texts rendered for the previous lines, or {@code null}.
+         */
+        private RenderedLines(List<Line> lines,
+                              RenderedLines previous) {
+            this.lines = lines;
+            this.texts = new String[lines.size()];
+
+            if (previous == null)
+                return;
+
+            for (int i = 0; i < Math.min(texts.length, previous.texts.length); i++) {
+                // The player already sees the text of an unchanged line
+                if (lines.get(i) == previous.lines.get(i))
+                    texts[i] = previous.texts[i];
+            }
+        }
+    }
 }
@@ -0,0 +1,177 @@
+package ak.znetwork.znpcservers.hologram;
+
+import ak.znetwork.znpcservers.types.ConfigTypes;
+import ak.znetwork.znpcservers.utility.PlaceholderUtils;
+import ak.znetwork.znpcservers.utility.Utils;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lombok.Getter;
+
+/**
+ * A hologram line compiled once, when the hologram text changes.
+ *
+ * <p>The text is split into literal segments, already colored & with the space symbol
+ * replaced, and placeholder segments, the only ones resolved for each viewer.</p>
+ *
+ * <p>Copyright (c) ZNetwork, 2020.</p>
+ *
+ * @author ZNetwork
+ * @since 07/02/2020
+ */
+@Getter
+public final class HologramLine {
+
+    /**
+     * The placeholder pattern.
+     */
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("%[^%]+%");
+
+    /**
+     * A string whitespace.
+     */
+    private static final String WHITESPACE = " ";
+
+    /**
+     * Determines if v1.13+ colors will be used, the placeholders results are not colored again.
+     */
+    private static final boolean V13 = Utils.versionNewer(13);
+
+    /**
+     * The raw line.
+     */
+    private final String line;
+
+    /**
+     * The line segments, the placeholder segments are stored raw.
+     */
+    private final String[] segments;
+
+    /**
+     * Determines for each segment if it is a placeholder.
+     */
+    private final boolean[] placeholders;
+
+    /**
+     * The line rendered without placeholders, the placeholders are left empty until resolved for a viewer.
+     */
+    private final String staticText;
+
+    /**
+     * Determines if the line depends on the viewer.
+     */
+    private final boolean dynamic;
+
+    /**
+     * Creates a new hologram line.
+     *
+     * @param line         The raw line.
+     * @param segments     The line segments.
+     * @param placeholders Determines for each segment if it is a placeholder.
+     */
+    private HologramLine(String line,
+                         String[] segments,
+                         boolean[] placeholders) {
+        this.line = line;
+        this.segments = segments;
+        this.placeholders = placeholders;
+
+        boolean dynamic = false;
+        StringBuilder staticText = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            dynamic |= placeholders[i];
+            if (!placeholders[i])
+                staticText.append(segments[i]);
+        }
+
+        this.dynamic = dynamic;
+        this.staticText = staticText.toString();
+    }
+
+    /**
+     * Compiles a hologram line.
+     *
+     * @param line The raw line.
+     * @return     The compiled line.
+     */
+    public static HologramLine compile(String line) {
+        List<String> segments = new ArrayList<>();
+        List<Boolean> placeholders = new ArrayList<>();
+
+        int start = 0;
+        if (Utils.PLACEHOLDER_SUPPORT) {
+            Matcher matcher = PLACEHOLDER_PATTERN.matcher(line);
+            while (matcher.find()) {
+                if (matcher.start() > start) {
+                    segments.add(renderLiteral(line.substring(start, matcher.start())));
+                    placeholders.add(false);
+                }
+
+                segments.add(matcher.group());
+                placeholders.add(true);
+
+                start = matcher.end();
+            }
+        }
+
+        if (start < line.length() || segments.isEmpty()) {
+            segments.add(renderLiteral(line.substring(start)));
+            placeholders.add(false);
+        }
+
+        boolean[] placeholderSegments = new boolean[placeholders.size()];
+        for (int i = 0; i < placeholderSegments.length; i++) {
+            placeholderSegments[i] = placeholders.get(i);
+        }
+        return new HologramLine(line, segments.toArray(new String[0]), placeholderSegments);
+    }
+
+    /**
+     * Renders the line for a player.
+     *
+     * @param player The player or {@code null} to render the line without placeholders.
+     * @return       The rendered line, or {@code null} if a placeholder was not resolved yet.
+     */
+    public String render(Player player) {
+        if (!dynamic || player == null)
+            return staticText;
+
+        StringBuilder rendered = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            if (!placeholders[i]) {
+                rendered.append(segments[i]);
+                continue;
+            }
+
+            String resolved = PlaceholderUtils.getCachedWithPlaceholders(player, segments[i]);
+            if (resolved == null)
+                return null;
+
+            rendered.append(V13 ? resolved : Utils.color(resolved));
+        }
+        return rendered.toString();
+    }
+
+    /**
+     * Checks if the line is visible.
+     *
+     * @return {@code true} If the line is not empty.
+     */
+    public boolean isVisible() {
+        return line.length() >= 1;
+    }
+
+    /**
+     * Renders a literal segment.
+     *
+     * @param segment The raw segment.
+     * @return        The colored segment with the space symbol replaced.
+     */
+    private static String renderLiteral(String segment) {
+        return Utils.color(segment).replace(ConfigTypes.SPACE_SYMBOL, WHITESPACE);
+    }
+}
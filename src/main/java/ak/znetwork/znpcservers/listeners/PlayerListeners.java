@@ -3,11 +3,21 @@ package ak.znetwork.znpcservers.listeners;
 import ak.znetwork.znpcservers.ServersNPC;
 
 import ak.znetwork.znpcservers.manager.NPCManager;
-import ak.znetwork.znpcservers.types.ConfigTypes;
+import ak.znetwork.znpcservers.npc.grid.ZNPCGrid;
+import ak.znetwork.znpcservers.user.ZNPCUser;
+import ak.znetwork.znpcservers.utility.PlaceholderUtils;
+import ak.znetwork.znpcservers.utility.Utils;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 
 import lombok.Getter;
 
@@ -43,12 +53,64 @@ public final class PlayerListeners implements Listener {
 
     @EventHandler
     public void onQuit(PlayerQuitEvent event) {
-        NPCManager.getNpcUsers().stream().filter(playerNetty -> playerNetty.getUuid() == event.getPlayer().getUniqueId()).findFirst().ifPresent(playerNetty -> {
-            playerNetty.ejectNetty();
+        if (Utils.PLACEHOLDER_SUPPORT)
+            PlaceholderUtils.CACHE.invalidate(event.getPlayer().getUniqueId());
 
-            NPCManager.getNpcUsers().remove(playerNetty);
-        });
+        ZNPCUser user = NPCManager.findUser(event.getPlayer().getUniqueId());
+        if (user == null)
+            return;
 
-        ConfigTypes.NPC_LIST.stream().filter(npc -> npc.getViewers().contains(event.getPlayer())).forEach(npc -> npc.delete(event.getPlayer(), true));
+        user.ejectNetty();
+
+        NPCManager.unregisterUser(user);
+
+        // The npcs are deleted from the npc task, which owns the players visibility
+        user.getViewer().setClosed(true);
+        getServersNPC().getNpcManagerTask().execute(() -> getServersNPC().getNpcManagerTask().getVisibility().forget(user));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMove(PlayerMoveEvent event) {
+        Location from = event.getFrom(), to = event.getTo();
+        // Only check the visibility when the player crosses a block
+        if (to == null || (from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY() && from.getBlockZ() == to.getBlockZ()))
+            return;
+
+        markMoved(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTeleport(PlayerTeleportEvent event) {
+        markMoved(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRespawn(PlayerRespawnEvent event) {
+        markMoved(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChangedWorld(PlayerChangedWorldEvent event) {
+        ZNPCUser user = NPCManager.findUser(event.getPlayer().getUniqueId());
+        if (user == null)
+            return;
+
+        // Delete the npcs of the old world before the next evaluation
+        ZNPCGrid oldGrid = ZNPCGrid.find(event.getFrom().getName());
+        if (oldGrid != null)
+            getServersNPC().getNpcManagerTask().execute(() -> getServersNPC().getNpcManagerTask().getVisibility().forgetWorld(user, oldGrid));
+
+        user.getViewer().markMoved();
+    }
+
+    /**
+     * Marks a player as moved, the npcs visibility will be checked again for the player.
+     *
+     * @param player The player.
+     */
+    private static void markMoved(Player player) {
+        ZNPCUser user = NPCManager.findUser(player.getUniqueId());
+        if (user != null)
+            user.getViewer().markMoved();
     }
 }
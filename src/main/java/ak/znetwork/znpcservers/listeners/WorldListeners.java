@@ -0,0 +1,76 @@
+package ak.znetwork.znpcservers.listeners;
+
+import ak.znetwork.znpcservers.ServersNPC;
+
+import ak.znetwork.znpcservers.npc.ZNPC;
+import ak.znetwork.znpcservers.tasks.NPCManagerTask;
+import ak.znetwork.znpcservers.types.ConfigTypes;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import lombok.Getter;
+
+/**
+ * <p>Copyright (c) ZNetwork, 2020.</p>
+ *
+ * @author ZNetwork
+ * @since 07/02/2020
+ */
+@Getter
+public final class WorldListeners implements Listener {
+
+    /**
+     * The plugin instance.
+     */
+    private final ServersNPC serversNPC;
+
+    /**
+     * Creates and register the necessary listeners for worlds.
+     *
+     * @param serversNPC The plugin instance.
+     */
+    public WorldListeners(ServersNPC serversNPC) {
+        this.serversNPC = serversNPC;
+
+        this.serversNPC.getServer().getPluginManager().registerEvents(this, serversNPC);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        String worldName = event.getWorld().getName();
+
+        // The npcs are attached from the npc task, so they are not evaluated while changing
+        NPCManagerTask npcManagerTask = getServersNPC().getNpcManagerTask();
+        for (ZNPC npc : ConfigTypes.NPC_LIST) {
+            if (!npc.isInWorld(worldName))
+                continue;
+
+            npcManagerTask.execute(() -> {
+                if (!npc.isSetup())
+                    npc.attach();
+            });
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        String worldName = event.getWorld().getName();
+
+        NPCManagerTask npcManagerTask = getServersNPC().getNpcManagerTask();
+        for (ZNPC npc : ConfigTypes.NPC_LIST) {
+            if (!npc.isInWorld(worldName))
+                continue;
+
+            npcManagerTask.execute(() -> {
+                if (!npc.isSetup())
+                    return;
+
+                npc.detach();
+                npcManagerTask.getVisibility().forgetNPC(npc);
+            });
+        }
+    }
+}
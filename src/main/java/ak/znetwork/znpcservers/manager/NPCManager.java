@@ -2,8 +2,11 @@ package ak.znetwork.znpcservers.manager;
 
 import ak.znetwork.znpcservers.user.ZNPCUser;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * <p>Copyright (c) ZNetwork, 2020.</p>
@@ -16,7 +19,12 @@ public class NPCManager {
     /**
      * A list of npc users.
      */
-    private static final List<ZNPCUser> NPC_USERS = new ArrayList<>();
+    private static final List<ZNPCUser> NPC_USERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * The npc users indexed by their player uuid.
+     */
+    private static final Map<UUID, ZNPCUser> USERS_BY_UUID = new ConcurrentHashMap<>();
 
     /**
      * A list of npc users.
@@ -26,4 +34,37 @@ public class NPCManager {
     public static List<ZNPCUser> getNpcUsers() {
         return NPC_USERS;
     }
+
+    /**
+     * Locates a npc user by its player uuid.
+     *
+     * @param uuid The player uuid.
+     * @return     The npc user or {@code null} if not found.
+     */
+    public static ZNPCUser findUser(UUID uuid) {
+        return USERS_BY_UUID.get(uuid);
+    }
+
+    /**
+     * Registers a new npc user.
+     *
+     * @param user The npc user.
+     */
+    public static void registerUser(ZNPCUser user) {
+        ZNPCUser oldUser = USERS_BY_UUID.put(user.getUuid(), user);
+        if (oldUser != null)
+            NPC_USERS.remove(oldUser);
+
+        NPC_USERS.add(user);
+    }
+
+    /**
+     * Unregisters a npc user.
+     *
+     * @param user The npc user.
+     */
+    public static void unregisterUser(ZNPCUser user) {
+        USERS_BY_UUID.remove(user.getUuid(), user);
+        NPC_USERS.remove(user);
+    }
 }
@@ -2,7 +2,10 @@ package ak.znetwork.znpcservers.npc;
 
 import ak.znetwork.znpcservers.ServersNPC;
 import ak.znetwork.znpcservers.hologram.Hologram;
-import ak.znetwork.znpcservers.manager.NPCManager;
+import ak.znetwork.znpcservers.npc.grid.ZNPCGrid;
+import ak.znetwork.znpcservers.npc.packet.ZNPCMetadata;
+import ak.znetwork.znpcservers.npc.packet.ZNPCMoveTracker;
+import ak.znetwork.znpcservers.npc.packet.ZNPCSpawnBundle;
 import ak.znetwork.znpcservers.user.ZNPCUser;
 import ak.znetwork.znpcservers.utility.location.ZLocation;
 import ak.znetwork.znpcservers.npc.enums.NPCItemSlot;
@@ -21,12 +24,13 @@ import com.mojang.datafixers.util.Pair;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.util.Vector;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -159,6 +163,13 @@ public class ZNPC {
     @Expose
     private HashMap<String, String[]> customizationMap = new HashMap<>();
 
+    /**
+     * The npc visibility priority, higher priority npcs are kept visible over farther
+     * npcs when a player reaches the visible npcs limit.
+     */
+    @Expose
+    private int priority;
+
     /**
      * The npc entity id.
      */
@@ -180,9 +191,9 @@ public class ZNPC {
     private Hologram hologram;
 
     /**
-     * A list of players the players who can see the npc.
+     * The users who can see the npc.
      */
-    private HashSet<Player> viewers;
+    private final Set<ZNPCUser> viewers = ConcurrentHashMap.newKeySet();
 
     /**
      * Cache reflection variables.
@@ -219,6 +230,44 @@ public class ZNPC {
      */
     private boolean setup = false;
 
+    /**
+     * The grid & cell where the npc is registered.
+     */
+    private volatile ZNPCGrid.Cell gridCell;
+
+    /**
+     * The packets to spawn the npc, shared by all viewers.
+     */
+    private volatile ZNPCSpawnBundle spawnBundle;
+
+    /**
+     * The npc version, increased when the spawn packets change.
+     */
+    private final AtomicInteger spawnVersion = new AtomicInteger();
+
+    /**
+     * The last position sent to the viewers.
+     */
+    private final ZNPCMoveTracker moveTracker = new ZNPCMoveTracker();
+
+    /**
+     * The entity data sent to each viewer.
+     */
+    private final ZNPCMetadata metadata = new ZNPCMetadata();
+
+    /**
+     * The nms item copies of the npc equipment.
+     */
+    private final Map<NPCItemSlot, Object> equipmentItems = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a npc loaded from the configuration.
+     *
+     * Used by gson, so the fields that are not saved are initialized
+     * even if the npc world is not loaded yet.
+     */
+    private ZNPC() {}
+
     /**
      * Creates a new NPC.
      *
@@ -247,8 +296,6 @@ public class ZNPC {
      * Called when a npc is created for the first time.
      */
     public void init() {
-        this.viewers = new HashSet<>();
-
         this.setNpcName("zNPC_" + getId());
 
         this.gameProfile = new GameProfile(UUID.randomUUID(), getNpcName());
@@ -261,6 +308,54 @@ public class ZNPC {
             this.setPath(ZNPCPathReader.find(getPathName()));
     }
 
+    /**
+     * Creates the npc entity again for its world, called when the npc world is loaded.
+     */
+    public void attach() {
+        if (getGameProfile() == null) {
+            init();
+            return;
+        }
+
+        changeType(getNpcType());
+    }
+
+    /**
+     * Releases the npc entity, called when the npc world is unloaded.
+     *
+     * The npc will not be seen until {@link #attach()} is called.
+     */
+    public void detach() {
+        deleteViewers();
+
+        ZNPCGrid.unregister(this);
+
+        location.invalidate();
+
+        setHologram(null);
+        setZnEntity(null);
+        setSetup(false);
+    }
+
+    /**
+     * Checks if the npc world is loaded.
+     *
+     * @return {@code true} If the npc world is loaded.
+     */
+    public boolean isWorldLoaded() {
+        return Bukkit.getWorld(location.getWorld()) != null;
+    }
+
+    /**
+     * Checks if the npc is located in a world.
+     *
+     * @param worldName The world name.
+     * @return {@code true} If the npc is located in the world.
+     */
+    public boolean isInWorld(String worldName) {
+        return location.getWorld().equals(worldName);
+    }
+
     /**
      * Set/Update the npc glow.
      *
@@ -275,31 +370,45 @@ public class ZNPC {
             setHasGlow(!isHasGlow());
 
         try {
-            Object npcDataWatcher = ClassTypes.GET_DATA_WATCHER_METHOD.invoke(getZnEntity());
-            ClassTypes.SET_DATA_WATCHER_METHOD.invoke(npcDataWatcher, ClassTypes.DATA_WATCHER_OBJECT_CONSTRUCTOR.newInstance(0, dataWatcherRegistryEnum), (isHasGlow() ? (byte) 0x40 : (byte) 0x0));
-
-            Object packet = ClassTypes.PACKET_PLAY_OUT_ENTITY_META_DATA_CONSTRUCTOR.newInstance(getEntityId(), npcDataWatcher, true);
-            getViewers().forEach(player -> ReflectionUtils.sendPacket(player, packet));
-
-            setGlowColor(getGlowColor(color));
-            setGlowName(color);
+            updateMetadata(applyGlow(color));
 
             // Update new glow color
             getViewers().forEach(this::toggleName);
-        } catch (IllegalAccessException | InvocationTargetException | InstantiationException operationException) {
-            throw new AssertionError(operationException);
+        } catch (Throwable throwable) {
+            throw new AssertionError(throwable);
         }
     }
 
+    /**
+     * Sets the npc glow in the entity data without sending it.
+     *
+     * @param color The glow color.
+     * @return      The npc data watcher.
+     */
+    private Object applyGlow(String color) throws IllegalAccessException, InvocationTargetException, InstantiationException {
+        Object npcDataWatcher = ClassTypes.GET_DATA_WATCHER_METHOD.invoke(getZnEntity());
+        ClassTypes.SET_DATA_WATCHER_METHOD.invoke(npcDataWatcher, ClassTypes.DATA_WATCHER_OBJECT_CONSTRUCTOR.newInstance(0, dataWatcherRegistryEnum), (isHasGlow() ? (byte) 0x40 : (byte) 0x0));
+
+        setGlowColor(getGlowColor(color));
+        setGlowName(color);
+
+        invalidateSpawnBundle();
+        return npcDataWatcher;
+    }
+
     /**
      * Updates the npc location.
+     *
+     * Small moves are sent as relative moves, see {@link ZNPCMoveTracker}.
+     *
+     * @param location The new location.
      */
-    public void updateLocation() {
+    public void updateLocation(Location location) {
         try {
-            Object npcTeleportPacket = ClassTypes.PACKET_PLAY_OUT_ENTITY_TELEPORT_CONSTRUCTOR.newInstance(getZnEntity());
-            getViewers().forEach(player -> ReflectionUtils.sendPacket(player, npcTeleportPacket));
-        } catch (InstantiationException | InvocationTargetException | IllegalAccessException operationException) {
-            throw new AssertionError(operationException);
+            Object npcMovePacket = getMoveTracker().createMovePacket(getEntityId(), getZnEntity(), location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
+            ZNPCUser.broadcast(getViewers(), npcMovePacket);
+        } catch (Throwable throwable) {
+            throw new AssertionError(throwable);
         }
     }
 
@@ -309,56 +418,115 @@ public class ZNPC {
      * @param location The new location.
      */
     public void setLocation(Location location) {
+        if (!hasPath()) {
+            this.location = new ZLocation(location = new Location(location.getWorld(), location.getBlockX() + 0.5, location.getBlockY(), location.getBlockZ() + 0.5, location.getYaw(), location.getPitch()));
+
+            lookAt(null, location, true);
+        }
+
         try {
-            if (!hasPath()) {
-                this.location = new ZLocation(location = new Location(location.getWorld(), location.getBlockX() + 0.5, location.getBlockY(), location.getBlockZ() + 0.5, location.getYaw(), location.getPitch()));
+            ClassTypes.SET_LOCATION_HANDLE.invokeExact(getZnEntity(), (Object) location.getX(), (Object) location.getY(), (Object) location.getZ(), (Object) location.getYaw(), (Object) location.getPitch());
+        } catch (Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
 
-                lookAt(null, location, true);
-            }
+        // The spawn packets are not built again, the new position is sent after them
+        updateLocation(location);
 
-            ClassTypes.SET_LOCATION_METHOD.invoke(getZnEntity(), location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
-            updateLocation();
+        getHologram().setLocation(location, getNpcType().getHoloHeight());
 
-            getHologram().setLocation(location, getNpcType().getHoloHeight());
-        } catch (IllegalAccessException | InvocationTargetException operationException) {
-            throw new AssertionError(operationException);
-        }
+        // Update npc cell
+        ZNPCGrid.update(this);
     }
 
     /**
      * Equip the npc.
      *
-     * @param player   The player to send the new npc equipment.
+     * @param user     The player to send the new npc equipment.
      * @param slot     The item slot (hand,helmet,...etc)
      * @param material The item to equip.
      */
-    public void equip(Player player, NPCItemSlot slot, Material material) {
+    public void equip(ZNPCUser user, NPCItemSlot slot, Material material) {
         try {
             Object item = ClassTypes.AS_NMS_COPY_METHOD.invoke(ClassTypes.CRAFT_ITEM_STACK_CLASS, new ItemStack(material));
-
-            Object equipPacket;
-            if (!V9) {
-                equipPacket = ClassTypes.PACKET_PLAY_OUT_ENTITY_EQUIPMENT_CONSTRUCTOR_OLD.newInstance(getEntityId(), slot.getSlotOld(), item);
-            } else {
-                if (Utils.versionNewer(16)) {
-                    List<Pair<?, ?>> pairs = (List<Pair<?, ?>>) ReflectionUtils.getValue(ClassTypes.PACKET_PLAY_OUT_ENTITY_EQUIPMENT.newInstance(), "b");
-                    pairs.add(new Pair<>(ClassTypes.ENUM_ITEM_SLOT.getEnumConstants()[slot.getSlotNew()], item));
-
-                    equipPacket = ClassTypes.PACKET_PLAY_OUT_ENTITY_EQUIPMENT_CONSTRUCTOR_NEW.newInstance(getEntityId(), pairs);
-                } else {
-                    equipPacket = ClassTypes.PACKET_PLAY_OUT_ENTITY_EQUIPMENT_CONSTRUCTOR_NEWEST_OLD.newInstance(getEntityId(), ClassTypes.ENUM_ITEM_SLOT.getEnumConstants()[slot.getSlotNew()], item);
-                }
-            }
+            Object equipPacket = createEquipPacket(slot, item);
 
             getNpcEquipments().put(slot, material);
+            getEquipmentItems().put(slot, item);
+            invalidateSpawnBundle();
 
-            if (player != null) ReflectionUtils.sendPacket(player, equipPacket);
-            else getViewers().forEach(players -> ReflectionUtils.sendPacket(players, equipPacket));
-        } catch (IllegalAccessException | InstantiationException | InvocationTargetException | NoSuchFieldException operationException) {
+            if (user != null) user.sendPacket(equipPacket);
+            else ZNPCUser.broadcast(getViewers(), equipPacket);
+        } catch (IllegalAccessException | InstantiationException | InvocationTargetException operationException) {
             throw new AssertionError(operationException);
         }
     }
 
+    /**
+     * Creates the equipment packet for a npc slot.
+     *
+     * @param slot The item slot (hand,helmet,...etc)
+     * @param item The nms item to equip.
+     * @return     The equipment packet.
+     */
+    private Object createEquipPacket(NPCItemSlot slot, Object item) throws IllegalAccessException, InstantiationException, InvocationTargetException {
+        if (!V9)
+            return ClassTypes.PACKET_PLAY_OUT_ENTITY_EQUIPMENT_CONSTRUCTOR_OLD.newInstance(getEntityId(), slot.getSlotOld(), item);
+
+        if (Utils.versionNewer(16)) {
+            List<Pair<?, ?>> pairs = new ArrayList<>(1);
+            pairs.add(new Pair<>(ClassTypes.ENUM_ITEM_SLOT.getEnumConstants()[slot.getSlotNew()], item));
+
+            return ClassTypes.PACKET_PLAY_OUT_ENTITY_EQUIPMENT_CONSTRUCTOR_NEW.newInstance(getEntityId(), pairs);
+        }
+        return ClassTypes.PACKET_PLAY_OUT_ENTITY_EQUIPMENT_CONSTRUCTOR_NEWEST_OLD.newInstance(getEntityId(), ClassTypes.ENUM_ITEM_SLOT.getEnumConstants()[slot.getSlotNew()], item);
+    }
+
+    /**
+     * Creates the packets to send the whole npc equipment.
+     *
+     * On v1.16+ all slots are sent in a single packet.
+     *
+     * @return The equipment packets.
+     */
+    private List<Object> createEquipmentPackets() throws IllegalAccessException, InstantiationException, InvocationTargetException {
+        List<Object> equipmentPackets = new ArrayList<>();
+        if (getNpcEquipments().isEmpty())
+            return equipmentPackets;
+
+        if (Utils.versionNewer(16)) {
+            List<Pair<?, ?>> pairs = new ArrayList<>(getNpcEquipments().size());
+            for (Map.Entry<NPCItemSlot, Material> equipment : getNpcEquipments().entrySet()) {
+                pairs.add(new Pair<>(ClassTypes.ENUM_ITEM_SLOT.getEnumConstants()[equipment.getKey().getSlotNew()], getEquipmentItem(equipment.getKey(), equipment.getValue())));
+            }
+
+            equipmentPackets.add(ClassTypes.PACKET_PLAY_OUT_ENTITY_EQUIPMENT_CONSTRUCTOR_NEW.newInstance(getEntityId(), pairs));
+            return equipmentPackets;
+        }
+
+        for (Map.Entry<NPCItemSlot, Material> equipment : getNpcEquipments().entrySet()) {
+            equipmentPackets.add(createEquipPacket(equipment.getKey(), getEquipmentItem(equipment.getKey(), equipment.getValue())));
+        }
+        return equipmentPackets;
+    }
+
+    /**
+     * Gets the cached nms item of an equipment slot, the item is created if not found.
+     *
+     * @param slot     The item slot.
+     * @param material The slot item.
+     * @return         The nms item.
+     */
+    private Object getEquipmentItem(NPCItemSlot slot, Material material) throws IllegalAccessException, InvocationTargetException {
+        Object item = getEquipmentItems().get(slot);
+        if (item == null) {
+            item = ClassTypes.AS_NMS_COPY_METHOD.invoke(ClassTypes.CRAFT_ITEM_STACK_CLASS, new ItemStack(material));
+
+            getEquipmentItems().put(slot, item);
+        }
+        return item;
+    }
+
     /**
      * Updates the npc skin.
      *
@@ -373,6 +541,7 @@ public class ZNPC {
 
         // Update new game profile properties
         updateProfile(getGameProfile().getProperties());
+        invalidateSpawnBundle();
 
         // Spawn npc again for viewers
         deleteViewers();
@@ -424,6 +593,7 @@ public class ZNPC {
 
             // Update new entity id
             setEntityId((Integer) ClassTypes.GET_ENTITY_ID.invoke(getZnEntity()));
+            invalidateSpawnBundle();
 
             // Check if the npc is created by first time
             if (!isSetup())
@@ -436,67 +606,146 @@ public class ZNPC {
     /**
      * Spawns the npc for a player.
      *
-     * @param player The player to see the npc.
+     * @param user The player to see the npc.
      */
-    public void spawn(Player player) {
+    public void spawn(ZNPCUser user) {
+        ZNPCSpawnBundle spawnBundle = getSpawnBundle();
+
         // Update the npc scoreboard for player
-        toggleName(player);
+        user.sendPacket(spawnBundle.getNamePackets());
+
+        // Check if npc type is player
+        boolean npcIsPlayer = getNpcType() == NPCType.PLAYER;
+
+        if (npcIsPlayer && isHasMirror()) {
+            // Set npc skin to player skin, copied so the player profile is not shared
+            PropertyMap properties = new PropertyMap();
+            properties.putAll(user.getGameProfile().getProperties());
+            updateProfile(properties);
+
+            // The profile uuid changed, the cached spawn packets are stale
+            invalidateSpawnBundle();
+
+            user.sendPacket(createEntityPackets());
+        } else user.sendPacket(spawnBundle.getEntityPackets());
+
+        if (isHasToggleHolo())
+            getHologram().spawn(user);
+
+        // Send npc equipment, data & rotation
+        user.sendPacket(spawnBundle.getDataPackets());
+
+        // The npc moved since the spawn packets were built
+        if (!spawnBundle.isBuiltAt(getLocation()))
+            user.sendPacket(createPositionPackets());
 
         try {
-            // Check if npc type is player
-            boolean npcIsPlayer = getNpcType() == NPCType.PLAYER;
+            getMetadata().markSent(user, (Object) ClassTypes.GET_DATA_WATCHER_HANDLE.invokeExact(getZnEntity()));
+        } catch (Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+
+        // Add player to viewers list
+        getViewers().add(user);
+
+        if (npcIsPlayer)
+            ServersNPC.SCHEDULER.scheduleSyncDelayedTask(() ->
+                    hideFromTab(user),
+                    60
+            );
+    }
 
-            if (npcIsPlayer && isHasMirror()) {
-                // Set npc skin to player skin
-                updateProfile(getGameProfileForPlayer(player).getProperties());
+    /**
+     * Gets the packets to spawn the npc, the packets are built again if the npc changed.
+     *
+     * @return The npc spawn packets.
+     */
+    private ZNPCSpawnBundle getSpawnBundle() {
+        ZNPCSpawnBundle spawnBundle = this.spawnBundle;
+
+        int version = getSpawnVersion().get();
+        if (spawnBundle != null && spawnBundle.getVersion() == version)
+            return spawnBundle;
+
+        try {
+            if (isHasGlow() && V9 && getGlowColor() == null) {
+                applyGlow(getGlowName());
+
+                version = getSpawnVersion().get();
             }
 
-            if (npcIsPlayer) ReflectionUtils.sendPacket(player, getTabConstructor());
-            ReflectionUtils.sendPacket(player, npcIsPlayer ? ClassTypes.PACKET_PLAY_OUT_NAMED_ENTITY_CONSTRUCTOR.newInstance(getZnEntity()) : ClassTypes.PACKET_PLAY_OUT_SPAWN_ENTITY_CONSTRUCTOR.newInstance(getZnEntity()));
+            List<Object> dataPackets = createEquipmentPackets();
 
-            Object npcDataWatcher = ClassTypes.GET_DATA_WATCHER_METHOD.invoke(getZnEntity());
+            dataPackets.add((Object) ClassTypes.PACKET_PLAY_OUT_ENTITY_META_DATA_HANDLE.invokeExact((Object) getEntityId(), (Object) ClassTypes.GET_DATA_WATCHER_HANDLE.invokeExact(getZnEntity()), (Object) true));
 
-            if (npcIsPlayer)
-                ReflectionUtils.sendPacket(player, ClassTypes.PACKET_PLAY_OUT_ENTITY_META_DATA_CONSTRUCTOR.newInstance(getEntityId(), npcDataWatcher, true));
+            // Fix npc rotation
+            Location npcLocation = location.toBukkitLocation();
+            Collections.addAll(dataPackets, createLookPackets(npcLocation.getYaw(), npcLocation.getPitch()));
 
-            if (isHasToggleHolo())
-                getHologram().spawn(player);
-            if (isHasGlow() && V9)
-                toggleGlow(getGlowName(), false);
+            spawnBundle = new ZNPCSpawnBundle(version, getLocation(), createNamePackets(), createEntityPackets(), dataPackets.toArray());
+        } catch (Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
 
-            // Update new npc id
-            setEntityId((Integer) ClassTypes.GET_ENTITY_ID.invoke(getZnEntity()));
+        // Only cache the bundle if the npc did not change while building it
+        if (version == getSpawnVersion().get())
+            this.spawnBundle = spawnBundle;
 
-            // Send npc equipment packets for player
-            getNpcEquipments().forEach((itemSlot, material) -> equip(player, itemSlot, material));
+        return spawnBundle;
+    }
 
-            // Update npc data
-            ReflectionUtils.sendPacket(player, ClassTypes.PACKET_PLAY_OUT_ENTITY_META_DATA_CONSTRUCTOR.newInstance(getEntityId(), npcDataWatcher, true));
+    /**
+     * Invalidates the npc spawn packets, called when a spawned part of the npc changes.
+     */
+    public void invalidateSpawnBundle() {
+        spawnVersion.incrementAndGet();
+        spawnBundle = null;
+    }
 
-            // Add player to viewers list
-            getViewers().add(player);
+    /**
+     * Creates the packets to move a spawned npc to its current position.
+     *
+     * @return The teleport, look & head rotation packets.
+     */
+    private Object[] createPositionPackets() {
+        try {
+            Location npcLocation = location.toBukkitLocation();
+            Object[] lookPackets = createLookPackets(npcLocation.getYaw(), npcLocation.getPitch());
 
-            // Fix npc rotation
-            lookAt(player, location.toBukkitLocation(), true);
+            return new Object[]{(Object) ClassTypes.PACKET_PLAY_OUT_ENTITY_TELEPORT_HANDLE.invokeExact(getZnEntity()), lookPackets[0], lookPackets[1]};
+        } catch (Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+    }
 
-            if (npcIsPlayer)
-                ServersNPC.SCHEDULER.scheduleSyncDelayedTask(() ->
-                        hideFromTab(player),
-                        60
-                );
-        } catch (IllegalAccessException | InstantiationException | InvocationTargetException operationException) {
-            throw new AssertionError(operationException);
+    /**
+     * Creates the packets to spawn the npc entity.
+     *
+     * @return The entity spawn packets.
+     */
+    private Object[] createEntityPackets() {
+        try {
+            if (getNpcType() != NPCType.PLAYER)
+                return new Object[]{(Object) ClassTypes.PACKET_PLAY_OUT_SPAWN_ENTITY_HANDLE.invokeExact(getZnEntity())};
+
+            return new Object[]{
+                    getTabConstructor(),
+                    (Object) ClassTypes.PACKET_PLAY_OUT_NAMED_ENTITY_HANDLE.invokeExact(getZnEntity()),
+                    (Object) ClassTypes.PACKET_PLAY_OUT_ENTITY_META_DATA_HANDLE.invokeExact((Object) getEntityId(), (Object) ClassTypes.GET_DATA_WATCHER_HANDLE.invokeExact(getZnEntity()), (Object) true)
+            };
+        } catch (Throwable throwable) {
+            throw new AssertionError(throwable);
         }
     }
 
     /**
      * Hides npc on player tab list.
      *
-     * @param player The player to hide the npc for.
+     * @param user The player to hide the npc for.
      */
-    public void hideFromTab(Player player) {
+    public void hideFromTab(ZNPCUser user) {
         try {
-            ReflectionUtils.sendPacket(player, ClassTypes.PACKET_PLAY_OUT_PLAYER_INFO_CONSTRUCTOR.newInstance(ClassTypes.REMOVE_PLAYER_FIELD.get(null), Collections.singletonList(getZnEntity())));
+            user.sendPacket(ClassTypes.PACKET_PLAY_OUT_PLAYER_INFO_CONSTRUCTOR.newInstance(ClassTypes.REMOVE_PLAYER_FIELD.get(null), Collections.singletonList(getZnEntity())));
         } catch (InstantiationException | InvocationTargetException | IllegalAccessException operationException) {
             throw new AssertionError(operationException);
         }
@@ -505,39 +754,45 @@ public class ZNPC {
     /**
      * Deletes the npc scoreboard for player.
      *
-     * @param player The player to delete the scoreboard for.
+     * @param user The player to delete the scoreboard for.
      */
-    public void deleteScoreboard(Player player) {
+    public void deleteScoreboard(ZNPCUser user) {
         try {
-            Object packetPlayOutScoreboardTeam = ClassTypes.PACKET_PLAY_OUT_SCOREBOARD_TEAM_CONSTRUCTOR.newInstance();
-
-            ReflectionUtils.setValue(packetPlayOutScoreboardTeam, TEAM_NAME, getGameProfile().getName());
-            ReflectionUtils.setValue(packetPlayOutScoreboardTeam, TEAM_MODE, 1);
-
-            ReflectionUtils.sendPacket(player, packetPlayOutScoreboardTeam);
+            user.sendPacket(createDeleteTeamPacket());
         } catch (IllegalAccessException | NoSuchFieldException | InstantiationException | InvocationTargetException operationException) {
             throw new AssertionError(operationException);
         }
     }
 
+    /**
+     * Creates the packet to delete the npc scoreboard team.
+     *
+     * @return The scoreboard team packet.
+     */
+    private Object createDeleteTeamPacket() throws IllegalAccessException, NoSuchFieldException, InstantiationException, InvocationTargetException {
+        Object packetPlayOutScoreboardTeam = ClassTypes.PACKET_PLAY_OUT_SCOREBOARD_TEAM_CONSTRUCTOR.newInstance();
+
+        ReflectionUtils.setValue(packetPlayOutScoreboardTeam, TEAM_NAME, getGameProfile().getName());
+        ReflectionUtils.setValue(packetPlayOutScoreboardTeam, TEAM_MODE, 1);
+        return packetPlayOutScoreboardTeam;
+    }
+
     /**
      * Deletes the npc for player.
      *
-     * @param player The player to delete the npc for.
+     * @param user The player to delete the npc for.
      */
-    public void delete(Player player, boolean removeViewer) {
-        try {
-            if (getNpcType() == NPCType.PLAYER)
-                hideFromTab(player);
+    public void delete(ZNPCUser user, boolean removeViewer) {
+        if (getNpcType() == NPCType.PLAYER)
+            hideFromTab(user);
 
-            ReflectionUtils.sendPacket(player, ClassTypes.PACKET_PLAY_OUT_ENTITY_DESTROY_CONSTRUCTOR.newInstance(new int[]{getEntityId()}));
-            getHologram().delete(player);
+        user.destroyEntities(getEntityId());
 
-            if (removeViewer)
-                getViewers().remove(player);
-        } catch (InstantiationException | InvocationTargetException | IllegalAccessException operationException) {
-            throw new AssertionError(operationException);
-        }
+        getMetadata().forget(user);
+        getHologram().delete(user);
+
+        if (removeViewer)
+            getViewers().remove(user);
     }
 
     /**
@@ -545,58 +800,122 @@ public class ZNPC {
      *
      * @param location The location to look.
      */
-    public void lookAt(Player player, Location location, boolean rotation) {
+    public void lookAt(ZNPCUser user, Location location, boolean rotation) {
         Location direction = (rotation ? location : this.location.toBukkitLocation().clone().setDirection(location.clone().subtract(this.location.toBukkitLocation().clone()).toVector()));
 
-        try {
-            Object lookPacket = ClassTypes.PACKET_PLAY_OUT_ENTITY_LOOK_CONSTRUCTOR.newInstance(getEntityId(), (byte) (direction.getYaw() * 256.0F / 360.0F), (byte) (direction.getPitch() * 256.0F / 360.0F), true);
-            Object headRotationPacket = ClassTypes.PACKET_PLAY_OUT_ENTITY_HEAD_ROTATION_CONSTRUCTOR.newInstance(getZnEntity(), (byte) (direction.getYaw() * 256.0F / 360.0F));
+        sendLook(user, direction.getYaw(), direction.getPitch());
+    }
 
-            if (player != null) ReflectionUtils.sendPacket(player, lookPacket, headRotationPacket);
-            else getViewers().forEach(players -> ReflectionUtils.sendPacket(players, headRotationPacket));
-        } catch (InstantiationException | IllegalAccessException | InvocationTargetException operationException) {
-            throw new AssertionError(operationException);
+    /**
+     * Makes the npc look at the given coordinates for a player.
+     *
+     * Same as {@link #lookAt(ZNPCUser, Location, boolean)} without creating new locations.
+     *
+     * @param user   The player.
+     * @param x      The x to look.
+     * @param y      The y to look.
+     * @param z      The z to look.
+     */
+    public void lookAt(ZNPCUser user, double x, double y, double z) {
+        Location npcLocation = getLocation();
+
+        double deltaX = x - npcLocation.getX();
+        double deltaY = y - npcLocation.getY();
+        double deltaZ = z - npcLocation.getZ();
+
+        float yaw, pitch;
+        if (deltaX == 0 && deltaZ == 0) {
+            yaw = npcLocation.getYaw();
+            pitch = deltaY > 0 ? -90 : 90;
+        } else {
+            double theta = Math.atan2(-deltaX, deltaZ);
+
+            yaw = (float) Math.toDegrees((theta + (Math.PI * 2)) % (Math.PI * 2));
+            pitch = (float) Math.toDegrees(Math.atan(-deltaY / Math.sqrt((deltaX * deltaX) + (deltaZ * deltaZ))));
         }
+
+        sendLook(user, yaw, pitch);
     }
 
     /**
-     * Gets the game-profile for player.
+     * Sends the npc rotation.
      *
-     * @param player The player.
-     * @return       The player game-profile or default npc game-profile if not found.
+     * @param user   The player or {@code null} to send the head rotation to all viewers.
+     * @param yaw    The npc yaw.
+     * @param pitch  The npc pitch.
      */
-    public GameProfile getGameProfileForPlayer(Player player) {
-        return NPCManager.getNpcUsers().stream().filter(npcUser -> npcUser.getUuid().equals(player.getUniqueId())).map(ZNPCUser::getGameProfile).findFirst().orElse(getGameProfile());
+    private void sendLook(ZNPCUser user, float yaw, float pitch) {
+        Object[] lookPackets = createLookPackets(yaw, pitch);
+
+        if (user != null) user.sendPacket(lookPackets);
+        else ZNPCUser.broadcast(getViewers(), lookPackets[1]);
     }
 
     /**
-     * Toggles the npc name.
+     * Creates the npc look & head rotation packets.
+     *
+     * @param yaw   The npc yaw.
+     * @param pitch The npc pitch.
+     * @return      The look & head rotation packets.
      */
-    public void toggleName(Player player) {
-        deleteScoreboard(player);
-
+    private Object[] createLookPackets(float yaw, float pitch) {
         try {
-            Object packetPlayOutScoreboardTeam = ClassTypes.PACKET_PLAY_OUT_SCOREBOARD_TEAM_CONSTRUCTOR.newInstance();
+            Object lookPacket = (Object) ClassTypes.PACKET_PLAY_OUT_ENTITY_LOOK_HANDLE.invokeExact((Object) getEntityId(), (Object) (byte) (yaw * 256.0F / 360.0F), (Object) (byte) (pitch * 256.0F / 360.0F), (Object) true);
+            Object headRotationPacket = (Object) ClassTypes.PACKET_PLAY_OUT_ENTITY_HEAD_ROTATION_HANDLE.invokeExact(getZnEntity(), (Object) (byte) (yaw * 256.0F / 360.0F));
 
-            ReflectionUtils.setValue(packetPlayOutScoreboardTeam, TEAM_NAME, getGameProfile().getName());
-            ReflectionUtils.setValue(packetPlayOutScoreboardTeam, "b", Utils.versionNewer(13) ? getHologram().getStringNewestVersion(null, getGameProfile().getName()) : getGameProfile().getName());
-            ReflectionUtils.setValue(packetPlayOutScoreboardTeam, "e", "never");
-            ReflectionUtils.setValue(packetPlayOutScoreboardTeam, TEAM_MODE, 0);
-            ReflectionUtils.setValue(packetPlayOutScoreboardTeam, V9 ? "j" : "i", 0);
+            return new Object[]{lookPacket, headRotationPacket};
+        } catch (Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+    }
 
-            if (V9 && isHasGlow() && getGlowColor() != null) {
-                Object enumPrefix = ClassTypes.ENUM_CHAT_TO_STRING_METHOD.invoke(getGlowColor());
+    /**
+     * Toggles the npc name.
+     */
+    public void toggleName(ZNPCUser user) {
+        try {
+            user.sendPacket(createNamePackets());
+        } catch (InstantiationException | InvocationTargetException | IllegalAccessException | NoSuchFieldException operationException) {
+            throw new AssertionError(operationException);
+        }
+    }
 
-                ReflectionUtils.setValue(packetPlayOutScoreboardTeam, "g", Utils.versionNewer(13) ? getGlowColor() : ClassTypes.GET_ENUM_CHAT_ID_METHOD.invoke(getGlowColor()));
-                ReflectionUtils.setValue(packetPlayOutScoreboardTeam, "c", Utils.versionNewer(13) ? ClassTypes.I_CHAT_BASE_COMPONENT_A_CONSTRUCTOR.newInstance(enumPrefix) : enumPrefix);
-            }
+    /**
+     * Creates the packets to delete & create the npc scoreboard team.
+     *
+     * @return The scoreboard team packets.
+     */
+    private Object[] createNamePackets() throws InstantiationException, InvocationTargetException, IllegalAccessException, NoSuchFieldException {
+        Object packetPlayOutScoreboardTeam = ClassTypes.PACKET_PLAY_OUT_SCOREBOARD_TEAM_CONSTRUCTOR.newInstance();
 
-            ReflectionUtils.setValue(packetPlayOutScoreboardTeam, V9 ? "h" : "g", Collections.singletonList(getGameProfile().getName()));
+        ReflectionUtils.setValue(packetPlayOutScoreboardTeam, TEAM_NAME, getGameProfile().getName());
+        ReflectionUtils.setValue(packetPlayOutScoreboardTeam, "b", Utils.versionNewer(13) ? getHologram().getStringNewestVersion(null, getGameProfile().getName()) : getGameProfile().getName());
+        ReflectionUtils.setValue(packetPlayOutScoreboardTeam, "e", "never");
+        ReflectionUtils.setValue(packetPlayOutScoreboardTeam, TEAM_MODE, 0);
+        ReflectionUtils.setValue(packetPlayOutScoreboardTeam, V9 ? "j" : "i", 0);
 
-            ReflectionUtils.sendPacket(player, packetPlayOutScoreboardTeam);
-        } catch (InstantiationException | InvocationTargetException | IllegalAccessException | NoSuchFieldException operationException) {
-            throw new AssertionError(operationException);
+        if (V9 && isHasGlow() && getGlowColor() != null) {
+            Object enumPrefix = ClassTypes.ENUM_CHAT_TO_STRING_METHOD.invoke(getGlowColor());
+
+            ReflectionUtils.setValue(packetPlayOutScoreboardTeam, "g", Utils.versionNewer(13) ? getGlowColor() : ClassTypes.GET_ENUM_CHAT_ID_METHOD.invoke(getGlowColor()));
+            ReflectionUtils.setValue(packetPlayOutScoreboardTeam, "c", Utils.versionNewer(13) ? ClassTypes.I_CHAT_BASE_COMPONENT_A_CONSTRUCTOR.newInstance(enumPrefix) : enumPrefix);
         }
+
+        ReflectionUtils.setValue(packetPlayOutScoreboardTeam, V9 ? "h" : "g", Collections.singletonList(getGameProfile().getName()));
+
+        return new Object[]{createDeleteTeamPacket(), packetPlayOutScoreboardTeam};
+    }
+
+    /**
+     * Changes the npc visibility priority.
+     *
+     * @param priority The new priority.
+     */
+    public void setPriority(int priority) {
+        this.priority = priority;
+
+        // Evaluate nearby players again
+        ZNPCGrid.markChanged(this);
     }
 
     /**
@@ -606,12 +925,15 @@ public class ZNPC {
         if (getViewers().isEmpty())
             return;
 
-        Iterator<Player> iterator = getViewers().iterator();
-        do {
+        Iterator<ZNPCUser> iterator = getViewers().iterator();
+        while (iterator.hasNext()) {
             delete(iterator.next(), Boolean.FALSE);
 
             iterator.remove();
-        } while (iterator.hasNext());
+        }
+
+        // Evaluate nearby players again, after the viewers were removed
+        ZNPCGrid.markChanged(this);
     }
 
     /**
@@ -675,11 +997,24 @@ public class ZNPC {
     public void customize(String name, String[] values) {
         try {
             getCustomizationMap().put(name, values);
+            invalidateSpawnBundle();
+
+            updateMetadata((Object) ClassTypes.GET_DATA_WATCHER_HANDLE.invokeExact(getZnEntity()));
+        } catch (Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+    }
 
-            Object customizationPacket = ClassTypes.PACKET_PLAY_OUT_ENTITY_META_DATA_CONSTRUCTOR.newInstance(getEntityId(), ClassTypes.GET_DATA_WATCHER_METHOD.invoke(getZnEntity()), true);
-            getViewers().forEach(player -> ReflectionUtils.sendPacket(player, customizationPacket));
-        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-            throw new AssertionError(e);
+    /**
+     * Sends the changed entity data to all viewers.
+     *
+     * @param npcDataWatcher The npc data watcher.
+     */
+    private void updateMetadata(Object npcDataWatcher) throws Throwable {
+        for (ZNPCUser user : getViewers()) {
+            Object metadataPacket = getMetadata().createPacket(user, getEntityId(), npcDataWatcher);
+            if (metadataPacket != null)
+                user.sendPacket(metadataPacket);
         }
     }
 
@@ -696,8 +1031,8 @@ public class ZNPC {
     public void toggleHolo() {
         setHasToggleHolo(!isHasToggleHolo());
 
-        if (!isHasToggleHolo()) getViewers().forEach(player -> getHologram().delete(player));
-        else getViewers().forEach(player -> getHologram().spawn(player));
+        if (!isHasToggleHolo()) getViewers().forEach(user -> getHologram().delete(user));
+        else getViewers().forEach(user -> getHologram().spawn(user));
     }
 
     /**
@@ -705,6 +1040,18 @@ public class ZNPC {
      */
     public void toggleMirror() {
         setHasMirror(!isHasMirror());
+
+        // Restore the npc skin after the mirror spawns
+        if (!isHasMirror() && getNpcType() == NPCType.PLAYER) {
+            PropertyMap properties = new PropertyMap();
+            properties.put(PROFILE_TEXTURES, new Property(PROFILE_TEXTURES, getSkin(), getSignature()));
+            updateProfile(properties);
+        }
+
+        invalidateSpawnBundle();
+
+        // Spawn npc again for viewers
+        deleteViewers();
     }
 
     /**
@@ -727,6 +1074,16 @@ public class ZNPC {
                 getCurrentPathLocation() : location.toBukkitLocation();
     }
 
+    /**
+     * Gets the grid where the npc is registered.
+     *
+     * @return The npc grid or {@code null} if the npc is not registered.
+     */
+    public ZNPCGrid getGrid() {
+        ZNPCGrid.Cell gridCell = getGridCell();
+        return gridCell == null ? null : gridCell.getGrid();
+    }
+
     /**
      * Gets the npc hologram or create a new one if not found.
      *
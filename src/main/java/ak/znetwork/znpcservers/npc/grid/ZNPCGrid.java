@@ -0,0 +1,372 @@
+package ak.znetwork.znpcservers.npc.grid;
+
+import ak.znetwork.znpcservers.npc.ZNPC;
+
+import org.bukkit.Location;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import lombok.Getter;
+
+/**
+ * A spatial index of the npcs of a world.
+ *
+ * <p>The npcs are stored in cells of one chunk (16x16 blocks) keyed by the
+ * packed chunk coordinates, so a lookup only has to check the npcs in the cells
+ * that intersect the requested radius.</p>
+ *
+ * <p>Copyright (c) ZNetwork, 2020.</p>
+ *
+ * @author ZNetwork
+ * @since 07/02/2020
+ */
+@Getter
+public final class ZNPCGrid {
+
+    /**
+     * A map for identifying a grid by its world name.
+     */
+    private static final ConcurrentMap<String, ZNPCGrid> WORLD_GRIDS = new ConcurrentHashMap<>();
+
+    /**
+     * The grids indexed by their identifier.
+     */
+    private static final List<ZNPCGrid> GRIDS_BY_ID = new CopyOnWriteArrayList<>();
+
+    /**
+     * The npcs that moved or changed since the last visibility evaluation.
+     */
+    private static final Set<ZNPC> CHANGED_NPCS = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The amount of bits to shift a block coordinate to get its cell coordinate.
+     */
+    private static final int CELL_SHIFT = 4;
+
+    /**
+     * The blocks a npc must move inside its cell to evaluate the nearby players again.
+     */
+    private static final int CHANGE_DISTANCE = 2;
+
+    /**
+     * The lock used to move the npcs between cells.
+     */
+    private static final Object MOVE_LOCK = new Object();
+
+    /**
+     * The grid identifier.
+     */
+    private final int id;
+
+    /**
+     * The grid world name.
+     */
+    private final String worldName;
+
+    /**
+     * The npcs stored in each cell.
+     */
+    private final ConcurrentMap<Long, Set<ZNPC>> cells;
+
+    /**
+     * All npcs of the grid.
+     */
+    private final Set<ZNPC> npcs;
+
+    /**
+     * The last snapshot where a player was found in the grid world.
+     */
+    private long activeStamp = -1;
+
+    /**
+     * Creates a new grid for a world.
+     *
+     * @param worldName The world name.
+     */
+    private ZNPCGrid(String worldName) {
+        this.id = GRIDS_BY_ID.size();
+        this.worldName = worldName;
+        this.cells = new ConcurrentHashMap<>();
+        this.npcs = ConcurrentHashMap.newKeySet();
+
+        GRIDS_BY_ID.add(this);
+    }
+
+    /**
+     * Adds the npc to the given cell.
+     *
+     * @param npc     The npc.
+     * @param cellKey The packed cell coordinates.
+     */
+    private void add(ZNPC npc, long cellKey) {
+        cells.computeIfAbsent(cellKey, key -> ConcurrentHashMap.newKeySet()).add(npc);
+    }
+
+    /**
+     * Removes the npc from the given cell.
+     *
+     * @param npc     The npc.
+     * @param cellKey The packed cell coordinates.
+     */
+    private void remove(ZNPC npc, long cellKey) {
+        Set<ZNPC> cell = cells.get(cellKey);
+        if (cell == null)
+            return;
+
+        cell.remove(npc);
+        if (cell.isEmpty())
+            cells.remove(cellKey, cell);
+    }
+
+    /**
+     * Marks the grid as active for a snapshot.
+     *
+     * @param stamp The snapshot number.
+     * @return {@code true} If the grid was not marked yet for the snapshot.
+     */
+    public boolean markActive(long stamp) {
+        if (activeStamp == stamp)
+            return false;
+
+        activeStamp = stamp;
+        return true;
+    }
+
+    /**
+     * Collects the npcs stored in the cells that intersect the given radius.
+     *
+     * The returned npcs are only candidates, the caller must still
+     * check the real distance.
+     *
+     * @param x      The center x.
+     * @param z      The center z.
+     * @param radius The radius (in blocks).
+     * @param into   The collection where the npcs will be added.
+     */
+    public void collect(double x, double z, double radius, Collection<ZNPC> into) {
+        int minX = floor(x - radius) >> CELL_SHIFT;
+        int maxX = floor(x + radius) >> CELL_SHIFT;
+        int minZ = floor(z - radius) >> CELL_SHIFT;
+        int maxZ = floor(z + radius) >> CELL_SHIFT;
+
+        for (int cellX = minX; cellX <= maxX; cellX++) {
+            for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+                Set<ZNPC> cell = cells.get(toKey(cellX, cellZ));
+                if (cell != null)
+                    into.addAll(cell);
+            }
+        }
+    }
+
+    /**
+     * Updates the cell of a npc according to its current location.
+     *
+     * @param npc The npc to update.
+     */
+    public static void update(ZNPC npc) {
+        Location location = npc.getLocation();
+        if (location == null || location.getWorld() == null)
+            return;
+
+        ZNPCGrid grid = of(location.getWorld().getName());
+        int blockX = location.getBlockX(), blockY = location.getBlockY(), blockZ = location.getBlockZ();
+        long cellKey = toKey(blockX >> CELL_SHIFT, blockZ >> CELL_SHIFT);
+
+        // The npcs are moved from the main thread & the npc task thread
+        synchronized (MOVE_LOCK) {
+            Cell cell = npc.getGridCell();
+            if (cell != null && grid == cell.getGrid() && cellKey == cell.getKey()) {
+                // Small moves inside the cell do not change the nearby players visibility
+                if (!cell.isFar(blockX, blockY, blockZ))
+                    return;
+
+                npc.setGridCell(new Cell(grid, cellKey, blockX, blockY, blockZ));
+                markChanged(npc);
+                return;
+            }
+
+            // Remove from the old cell
+            if (cell != null && grid == cell.getGrid()) {
+                grid.remove(npc, cell.getKey());
+            } else {
+                unregister(npc);
+
+                grid.npcs.add(npc);
+            }
+
+            grid.add(npc, cellKey);
+
+            // The grid & cell are published together
+            npc.setGridCell(new Cell(grid, cellKey, blockX, blockY, blockZ));
+        }
+
+        markChanged(npc);
+    }
+
+    /**
+     * Removes a npc from its grid.
+     *
+     * @param npc The npc to remove.
+     */
+    public static void unregister(ZNPC npc) {
+        synchronized (MOVE_LOCK) {
+            Cell cell = npc.getGridCell();
+            if (cell == null)
+                return;
+
+            cell.getGrid().remove(npc, cell.getKey());
+            cell.getGrid().npcs.remove(npc);
+            npc.setGridCell(null);
+        }
+
+        markChanged(npc);
+    }
+
+    /**
+     * Marks a npc as changed, the players near the npc will be evaluated again.
+     *
+     * @param npc The changed npc.
+     */
+    public static void markChanged(ZNPC npc) {
+        CHANGED_NPCS.add(npc);
+    }
+
+    /**
+     * The npcs that moved or changed since the last visibility evaluation.
+     *
+     * @return The changed npcs.
+     */
+    public static Set<ZNPC> getChangedNPCs() {
+        return CHANGED_NPCS;
+    }
+
+    /**
+     * Gets the grid for a world or creates a new one if not found.
+     *
+     * @param worldName The world name.
+     * @return          The world grid.
+     */
+    public static ZNPCGrid of(String worldName) {
+        ZNPCGrid grid = WORLD_GRIDS.get(worldName);
+        if (grid != null)
+            return grid;
+
+        // The grid identifiers are assigned in creation order
+        synchronized (GRIDS_BY_ID) {
+            return WORLD_GRIDS.computeIfAbsent(worldName, ZNPCGrid::new);
+        }
+    }
+
+    /**
+     * Gets all grids.
+     *
+     * @return The grids indexed by their identifier.
+     */
+    public static List<ZNPCGrid> getGrids() {
+        return GRIDS_BY_ID;
+    }
+
+    /**
+     * Locates a grid by its identifier.
+     *
+     * @param id The grid identifier.
+     * @return   The world grid.
+     */
+    public static ZNPCGrid byId(int id) {
+        return GRIDS_BY_ID.get(id);
+    }
+
+    /**
+     * Locates a grid by its world name.
+     *
+     * @param worldName The world name.
+     * @return          The world grid or {@code null} if no npc was registered in the world.
+     */
+    public static ZNPCGrid find(String worldName) {
+        return WORLD_GRIDS.get(worldName);
+    }
+
+    /**
+     * Packs the cell coordinates into a single key.
+     *
+     * @param cellX The cell x.
+     * @param cellZ The cell z.
+     * @return      The packed key.
+     */
+    private static long toKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Rounds a coordinate down to its block coordinate.
+     *
+     * @param value The coordinate.
+     * @return      The block coordinate.
+     */
+    private static int floor(double value) {
+        int floor = (int) value;
+        return value < floor ? floor - 1 : floor;
+    }
+
+    /**
+     * The grid & cell where a npc is registered.
+     */
+    @Getter
+    public static final class Cell {
+
+        /**
+         * The grid.
+         */
+        private final ZNPCGrid grid;
+
+        /**
+         * The packed cell coordinates.
+         */
+        private final long key;
+
+        /**
+         * The npc block x,y,z when the nearby players were last evaluated.
+         */
+        private final int blockX, blockY, blockZ;
+
+        /**
+         * Creates a new npc cell.
+         *
+         * @param grid   The grid.
+         * @param key    The packed cell coordinates.
+         * @param blockX The npc block x.
+         * @param blockY The npc block y.
+         * @param blockZ The npc block z.
+         */
+        Cell(ZNPCGrid grid,
+             long key,
+             int blockX,
+             int blockY,
+             int blockZ) {
+            this.grid = grid;
+            this.key = key;
+            this.blockX = blockX;
+            this.blockY = blockY;
+            this.blockZ = blockZ;
+        }
+
+        /**
+         * Checks if a npc moved far enough to evaluate the nearby players again.
+         *
+         * @param blockX The npc block x.
+         * @param blockY The npc block y.
+         * @param blockZ The npc block z.
+         * @return {@code true} If the npc moved at least {@link #CHANGE_DISTANCE} blocks in any axis.
+         */
+        boolean isFar(int blockX, int blockY, int blockZ) {
+            return Math.abs(blockX - this.blockX) >= CHANGE_DISTANCE
+                    || Math.abs(blockY - this.blockY) >= CHANGE_DISTANCE
+                    || Math.abs(blockZ - this.blockZ) >= CHANGE_DISTANCE;
+        }
+    }
+}
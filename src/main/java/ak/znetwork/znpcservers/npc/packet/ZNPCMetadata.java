@@ -0,0 +1,150 @@
+package ak.znetwork.znpcservers.npc.packet;
+
+import ak.znetwork.znpcservers.types.ClassTypes;
+import ak.znetwork.znpcservers.user.ZNPCUser;
+import ak.znetwork.znpcservers.utility.ReflectionUtils;
+import ak.znetwork.znpcservers.utility.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tracks the entity data sent to each viewer of an entity.
+ *
+ * <p>The first packet for a viewer contains every data entry, the next packets
+ * only contain the entries whose value changed since the last packet sent to the viewer.</p>
+ *
+ * <p>Copyright (c) ZNetwork, 2020.</p>
+ *
+ * @author ZNetwork
+ * @since 07/02/2020
+ */
+public final class ZNPCMetadata {
+
+    /**
+     * The entity id field in the metadata packet.
+     */
+    private static final String PACKET_ENTITY_ID = "a";
+
+    /**
+     * The data entries field in the metadata packet.
+     */
+    private static final String PACKET_ITEMS = "b";
+
+    /**
+     * The value stored for the data entries without value.
+     */
+    private static final Object NULL_VALUE = new Object();
+
+    /**
+     * Determines if the data entries are keyed by a data watcher object (v1.9+).
+     */
+    private static final boolean V9 = Utils.versionNewer(9);
+
+    /**
+     * The last data values sent to each viewer, keyed by the data entry key.
+     *
+     * The values are updated from the npc task thread & the main thread.
+     */
+    private final ConcurrentMap<ZNPCUser, Map<Object, Object>> sentValues = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a metadata packet with the data entries that changed for a viewer.
+     *
+     * @param user        The viewer.
+     * @param entityId    The entity id.
+     * @param dataWatcher The entity data watcher.
+     * @return            The metadata packet or {@code null} if nothing changed for the viewer.
+     */
+    public Object createPacket(ZNPCUser user, int entityId, Object dataWatcher) throws Throwable {
+        Map<Object, Object> values = sentValues.computeIfAbsent(user, key -> new ConcurrentHashMap<>());
+
+        List<Object> changedItems = new ArrayList<>();
+        for (Object item : getItems(dataWatcher)) {
+            Object key = (Object) ClassTypes.DATA_WATCHER_ITEM_KEY_HANDLE.invokeExact(item);
+            Object value = (Object) ClassTypes.DATA_WATCHER_ITEM_VALUE_HANDLE.invokeExact(item);
+
+            if (Objects.equals(values.get(key), toStored(value)))
+                continue;
+
+            values.put(key, toStored(value));
+            // The entries are the live entity data, the packet keeps the value sent
+            changedItems.add(copyItem(item, key, value));
+        }
+
+        if (changedItems.isEmpty())
+            return null;
+
+        Object packet = ClassTypes.PACKET_PLAY_OUT_ENTITY_META_DATA_EMPTY_CONSTRUCTOR.newInstance();
+
+        ReflectionUtils.setValue(packet, PACKET_ENTITY_ID, entityId);
+        ReflectionUtils.setValue(packet, PACKET_ITEMS, changedItems);
+        return packet;
+    }
+
+    /**
+     * Records every data entry as sent to a viewer, called after a full metadata packet is sent.
+     *
+     * @param user        The viewer.
+     * @param dataWatcher The entity data watcher.
+     */
+    public void markSent(ZNPCUser user, Object dataWatcher) throws Throwable {
+        Map<Object, Object> values = new ConcurrentHashMap<>();
+        for (Object item : getItems(dataWatcher)) {
+            values.put((Object) ClassTypes.DATA_WATCHER_ITEM_KEY_HANDLE.invokeExact(item), toStored((Object) ClassTypes.DATA_WATCHER_ITEM_VALUE_HANDLE.invokeExact(item)));
+        }
+
+        sentValues.put(user, values);
+    }
+
+    /**
+     * Forgets the data sent to a viewer, the next packet will contain every data entry.
+     *
+     * @param user The viewer.
+     */
+    public void forget(ZNPCUser user) {
+        sentValues.remove(user);
+    }
+
+    /**
+     * Converts a data value to the value stored for a viewer.
+     *
+     * @param value The data value.
+     * @return      The stored value.
+     */
+    private static Object toStored(Object value) {
+        return value == null ? NULL_VALUE : value;
+    }
+
+    /**
+     * Copies a data entry with its current value.
+     *
+     * @param item  The data entry.
+     * @param key   The data entry key.
+     * @param value The data entry value.
+     * @return      The copied data entry.
+     */
+    private static Object copyItem(Object item, Object key, Object value) throws Throwable {
+        if (V9)
+            return (Object) ClassTypes.DATA_WATCHER_ITEM_HANDLE.invokeExact(key, value);
+
+        Object type = (Object) ClassTypes.DATA_WATCHER_ITEM_TYPE_HANDLE.invokeExact(item);
+        return (Object) ClassTypes.DATA_WATCHER_ITEM_HANDLE.invokeExact(type, key, value);
+    }
+
+    /**
+     * Gets the data entries of a data watcher, the entries are not copied.
+     *
+     * @param dataWatcher The data watcher.
+     * @return            The data entries.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Object> getItems(Object dataWatcher) throws Throwable {
+        List<Object> items = (List<Object>) (Object) ClassTypes.DATA_WATCHER_ITEMS_HANDLE.invokeExact(dataWatcher);
+        return items == null ? new ArrayList<>() : items;
+    }
+}
@@ -0,0 +1,151 @@
+package ak.znetwork.znpcservers.npc.packet;
+
+import ak.znetwork.znpcservers.types.ClassTypes;
+import ak.znetwork.znpcservers.utility.Utils;
+
+/**
+ * Tracks the last position sent for an entity, so small moves can be sent
+ * as relative move packets instead of full teleports.
+ *
+ * <p>The position is stored in the protocol fixed-point units, the relative deltas
+ * are computed from the last sent position so the viewers do not drift. A full
+ * teleport is still sent every {@link #RESYNC_INTERVAL} moves.</p>
+ *
+ * <p>Copyright (c) ZNetwork, 2020.</p>
+ *
+ * @author ZNetwork
+ * @since 07/02/2020
+ */
+public final class ZNPCMoveTracker {
+
+    /**
+     * Determines if v1.9+ movement units will be used.
+     */
+    private static final boolean V9 = Utils.versionNewer(9);
+
+    /**
+     * Determines if v1.14+ movement units will be used.
+     */
+    private static final boolean V14 = Utils.versionNewer(14);
+
+    /**
+     * The amount of units per block.
+     */
+    private static final double UNITS_PER_BLOCK = V9 ? 4096 : 32;
+
+    /**
+     * The max relative move delta (in units).
+     */
+    private static final long MAX_DELTA = V9 ? Short.MAX_VALUE : Byte.MAX_VALUE;
+
+    /**
+     * The min relative move delta (in units).
+     */
+    private static final long MIN_DELTA = V9 ? Short.MIN_VALUE : Byte.MIN_VALUE;
+
+    /**
+     * The amount of relative moves before sending a full teleport.
+     */
+    private static final int RESYNC_INTERVAL = 20;
+
+    /**
+     * The tracked entity id.
+     */
+    private int entityId;
+
+    /**
+     * Determines if a position was sent for the entity.
+     */
+    private boolean tracked;
+
+    /**
+     * The last sent x,y,z (in units).
+     */
+    private long x, y, z;
+
+    /**
+     * The relative moves sent since the last teleport.
+     */
+    private int moves;
+
+    /**
+     * Creates the packet to move the entity to the given position.
+     *
+     * @param entityId The entity id.
+     * @param entity   The entity, already moved to the position.
+     * @param x        The new x.
+     * @param y        The new y.
+     * @param z        The new z.
+     * @param yaw      The new yaw.
+     * @param pitch    The new pitch.
+     * @return         A relative move packet or a teleport packet if the delta is too big.
+     */
+    public synchronized Object createMovePacket(int entityId,
+                                                Object entity,
+                                                double x,
+                                                double y,
+                                                double z,
+                                                float yaw,
+                                                float pitch) throws Throwable {
+        long newX = toUnits(x), newY = toUnits(y), newZ = toUnits(z);
+        long deltaX = newX - this.x, deltaY = newY - this.y, deltaZ = newZ - this.z;
+
+        Object packet;
+        if (ClassTypes.PACKET_PLAY_OUT_REL_ENTITY_MOVE_LOOK_HANDLE != null && tracked && entityId == this.entityId && moves < RESYNC_INTERVAL
+                && fits(deltaX) && fits(deltaY) && fits(deltaZ)) {
+            packet = (Object) ClassTypes.PACKET_PLAY_OUT_REL_ENTITY_MOVE_LOOK_HANDLE.invokeExact((Object) entityId,
+                    toDelta(deltaX), toDelta(deltaY), toDelta(deltaZ),
+                    (Object) (byte) (yaw * 256.0F / 360.0F), (Object) (byte) (pitch * 256.0F / 360.0F), (Object) true);
+
+            moves++;
+        } else {
+            packet = (Object) ClassTypes.PACKET_PLAY_OUT_ENTITY_TELEPORT_HANDLE.invokeExact(entity);
+
+            moves = 0;
+        }
+
+        this.entityId = entityId;
+        this.tracked = true;
+        this.x = newX;
+        this.y = newY;
+        this.z = newZ;
+        return packet;
+    }
+
+    /**
+     * Forgets the last sent position, the next move will be a teleport.
+     */
+    public synchronized void reset() {
+        tracked = false;
+    }
+
+    /**
+     * Converts a coordinate to protocol units.
+     *
+     * @param coordinate The coordinate.
+     * @return           The coordinate in units.
+     */
+    private static long toUnits(double coordinate) {
+        return (long) Math.floor(coordinate * UNITS_PER_BLOCK);
+    }
+
+    /**
+     * Checks if a delta can be sent in a relative move packet.
+     *
+     * @param delta The delta (in units).
+     * @return {@code true} If the delta fits in the packet.
+     */
+    private static boolean fits(long delta) {
+        return delta >= MIN_DELTA && delta <= MAX_DELTA;
+    }
+
+    /**
+     * Boxes a delta as the type used by the current version packet.
+     *
+     * @param delta The delta (in units).
+     * @return      The boxed delta.
+     */
+    private static Object toDelta(long delta) {
+        return V14 ? (Object) (short) delta : V9 ? (Object) delta : (Object) (byte) delta;
+    }
+}
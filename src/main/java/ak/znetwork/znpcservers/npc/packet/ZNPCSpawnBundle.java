@@ -0,0 +1,87 @@
+package ak.znetwork.znpcservers.npc.packet;
+
+import org.bukkit.Location;
+
+import lombok.Getter;
+
+/**
+ * The packets needed to spawn a npc, shared by all viewers.
+ *
+ * <p>The bundle is built for a version of the npc, when the npc changes its version
+ * is increased and the bundle is built again on the next spawn. The npc position is
+ * not part of the version, a moved npc keeps its bundle & sends its new position after it.</p>
+ *
+ * <p>Copyright (c) ZNetwork, 2020.</p>
+ *
+ * @author ZNetwork
+ * @since 07/02/2020
+ */
+@Getter
+public final class ZNPCSpawnBundle {
+
+    /**
+     * The npc version when the bundle was built.
+     */
+    private final int version;
+
+    /**
+     * The npc position when the bundle was built.
+     */
+    private final double x, y, z;
+
+    /**
+     * The npc rotation when the bundle was built.
+     */
+    private final float yaw, pitch;
+
+    /**
+     * The npc scoreboard team packets.
+     */
+    private final Object[] namePackets;
+
+    /**
+     * The npc entity spawn packets.
+     */
+    private final Object[] entityPackets;
+
+    /**
+     * The npc equipment, data & rotation packets.
+     */
+    private final Object[] dataPackets;
+
+    /**
+     * Creates a new spawn bundle.
+     *
+     * @param version       The npc version.
+     * @param location      The npc location.
+     * @param namePackets   The npc scoreboard team packets.
+     * @param entityPackets The npc entity spawn packets.
+     * @param dataPackets   The npc equipment, data & rotation packets.
+     */
+    public ZNPCSpawnBundle(int version,
+                           Location location,
+                           Object[] namePackets,
+                           Object[] entityPackets,
+                           Object[] dataPackets) {
+        this.version = version;
+        this.x = location.getX();
+        this.y = location.getY();
+        this.z = location.getZ();
+        this.yaw = location.getYaw();
+        this.pitch = location.getPitch();
+        this.namePackets = namePackets;
+        this.entityPackets = entityPackets;
+        this.dataPackets = dataPackets;
+    }
+
+    /**
+     * Checks if the bundle was built at the given location.
+     *
+     * @param location The npc location.
+     * @return {@code true} If the npc did not move since the bundle was built.
+     */
+    public boolean isBuiltAt(Location location) {
+        return location.getX() == x && location.getY() == y && location.getZ() == z &&
+                location.getYaw() == yaw && location.getPitch() == pitch;
+    }
+}
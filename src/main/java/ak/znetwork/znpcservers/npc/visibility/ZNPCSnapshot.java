@@ -0,0 +1,212 @@
+package ak.znetwork.znpcservers.npc.visibility;
+
+import ak.znetwork.znpcservers.manager.NPCManager;
+import ak.znetwork.znpcservers.npc.grid.ZNPCGrid;
+import ak.znetwork.znpcservers.user.ZNPCUser;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.Getter;
+
+/**
+ * A double-buffered copy of the online players positions.
+ *
+ * <p>The positions are captured on the main thread once per tick, so the npc task
+ * can read them from its own thread without calling bukkit.</p>
+ *
+ * <p>Copyright (c) ZNetwork, 2020.</p>
+ *
+ * @author ZNetwork
+ * @since 07/02/2020
+ */
+public final class ZNPCSnapshot {
+
+    /**
+     * The default amount of players per buffer.
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * The snapshot buffers.
+     */
+    private final Buffer first, second;
+
+    /**
+     * The location used to copy the players positions.
+     */
+    private final Location location;
+
+    /**
+     * The last captured buffer.
+     */
+    private volatile Buffer front;
+
+    /**
+     * The amount of captured snapshots.
+     */
+    private long captures;
+
+    /**
+     * Creates a new snapshot.
+     */
+    public ZNPCSnapshot() {
+        this.first = new Buffer();
+        this.second = new Buffer();
+        this.location = new Location(null, 0, 0, 0);
+
+        this.front = first;
+    }
+
+    /**
+     * Copies the position of every online player.
+     *
+     * Must be called from the main thread.
+     */
+    public void capture() {
+        Buffer back = front == first ? second : first;
+        // The reader is still using the buffer, keep the previous positions for this tick
+        if (back.inUse.get())
+            return;
+
+        List<ZNPCUser> users = NPCManager.getNpcUsers();
+        back.ensureCapacity(users.size());
+        back.activeGrids.clear();
+
+        long stamp = ++captures;
+
+        int size = 0;
+        for (ZNPCUser user : users) {
+            Player player = user.toPlayer();
+            if (player == null || size >= back.users.length)
+                continue;
+
+            player.getLocation(location);
+
+            ZNPCGrid grid = ZNPCGrid.of(location.getWorld().getName());
+            if (grid.markActive(stamp))
+                back.activeGrids.add(grid);
+
+            back.users[size] = user;
+            back.players[size] = player;
+            back.worlds[size] = grid.getId();
+            back.x[size] = location.getX();
+            back.y[size] = location.getY();
+            back.z[size] = location.getZ();
+            back.yaw[size] = location.getYaw();
+            back.pitch[size] = location.getPitch();
+
+            size++;
+        }
+
+        // Release the players that left
+        for (int i = size; i < back.size; i++) {
+            back.users[i] = null;
+            back.players[i] = null;
+        }
+
+        back.size = size;
+        front = back;
+    }
+
+    /**
+     * Gets the last captured buffer & marks it as in use.
+     *
+     * The buffer will not be overwritten until it is released.
+     *
+     * @return The last captured buffer.
+     */
+    public Buffer acquire() {
+        while (true) {
+            Buffer buffer = front;
+            buffer.inUse.set(true);
+
+            if (buffer == front)
+                return buffer;
+
+            buffer.inUse.set(false);
+        }
+    }
+
+    /**
+     * Releases a buffer obtained by {@link #acquire()}.
+     *
+     * @param buffer The buffer to release.
+     */
+    public void release(Buffer buffer) {
+        buffer.inUse.set(false);
+    }
+
+    /**
+     * The players positions of a tick.
+     */
+    @Getter
+    public static final class Buffer {
+
+        /**
+         * Determines if the buffer is being read.
+         */
+        private final AtomicBoolean inUse = new AtomicBoolean();
+
+        /**
+         * The amount of players in the buffer.
+         */
+        private int size;
+
+        /**
+         * The grids of the worlds with at least one player.
+         */
+        private final List<ZNPCGrid> activeGrids = new ArrayList<>();
+
+        /**
+         * The players users.
+         */
+        private ZNPCUser[] users = new ZNPCUser[DEFAULT_CAPACITY];
+
+        /**
+         * The players, only used to read the player state that does not depend on the main thread.
+         */
+        private Player[] players = new Player[DEFAULT_CAPACITY];
+
+        /**
+         * The players world grid identifier.
+         */
+        private int[] worlds = new int[DEFAULT_CAPACITY];
+
+        /**
+         * The players x,y,z.
+         */
+        private double[] x = new double[DEFAULT_CAPACITY], y = new double[DEFAULT_CAPACITY], z = new double[DEFAULT_CAPACITY];
+
+        /**
+         * The players yaw,pitch.
+         */
+        private float[] yaw = new float[DEFAULT_CAPACITY], pitch = new float[DEFAULT_CAPACITY];
+
+        /**
+         * Grows the buffer if it cannot hold the given amount of players.
+         *
+         * @param capacity The amount of players.
+         */
+        private void ensureCapacity(int capacity) {
+            if (capacity <= users.length)
+                return;
+
+            int newCapacity = Math.max(capacity, users.length * 2);
+
+            users = Arrays.copyOf(users, newCapacity);
+            players = Arrays.copyOf(players, newCapacity);
+            worlds = Arrays.copyOf(worlds, newCapacity);
+            x = Arrays.copyOf(x, newCapacity);
+            y = Arrays.copyOf(y, newCapacity);
+            z = Arrays.copyOf(z, newCapacity);
+            yaw = Arrays.copyOf(yaw, newCapacity);
+            pitch = Arrays.copyOf(pitch, newCapacity);
+        }
+    }
+}
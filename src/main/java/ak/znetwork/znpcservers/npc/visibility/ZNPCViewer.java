@@ -0,0 +1,193 @@
+package ak.znetwork.znpcservers.npc.visibility;
+
+import ak.znetwork.znpcservers.npc.ZNPC;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The visibility state of a player.
+ *
+ * <p>Copyright (c) ZNetwork, 2020.</p>
+ *
+ * @author ZNetwork
+ * @since 07/02/2020
+ */
+@Getter @Setter
+public class ZNPCViewer {
+
+    /**
+     * The amount of ticks to check the player position after a move.
+     *
+     * The player position is checked twice since the move can happen after
+     * the positions snapshot was taken.
+     */
+    private static final int MOVE_CHECKS = 2;
+
+    /**
+     * The grid identifier of the world where the visibility was last evaluated.
+     */
+    private int lastWorld = -1;
+
+    /**
+     * The block position where the visibility was last evaluated.
+     */
+    private int lastBlockX, lastBlockY, lastBlockZ;
+
+    /**
+     * Determines if the visibility must be evaluated again.
+     */
+    private volatile boolean dirty = true;
+
+    /**
+     * Determines if the player left, the visibility is not evaluated anymore.
+     */
+    private volatile boolean closed;
+
+    /**
+     * The remaining ticks to check the player position.
+     */
+    private final AtomicInteger moveChecks = new AtomicInteger(MOVE_CHECKS);
+
+    /**
+     * The npcs that the player can see.
+     */
+    private final Set<ZNPC> visibleNPCs;
+
+    /**
+     * The npcs waiting to be spawned, sorted by distance when a spawn rate is set.
+     */
+    private final List<ZNPC> spawns;
+
+    /**
+     * The npcs to delete on the current evaluation.
+     */
+    private final List<ZNPC> despawns;
+
+    /**
+     * The npcs near the player on the current evaluation.
+     */
+    private final List<ZNPC> nearbyNPCs;
+
+    /**
+     * The npcs ranked by score when the visible npcs limit is reached.
+     */
+    private final List<ZNPC> rankedNPCs;
+
+    /**
+     * The tick where each npc was last spawned or deleted for the player.
+     */
+    private final Map<ZNPC, Long> toggleTicks;
+
+    /**
+     * Creates a new visibility state.
+     */
+    public ZNPCViewer() {
+        this.visibleNPCs = new HashSet<>();
+        this.spawns = new ArrayList<>();
+        this.despawns = new ArrayList<>();
+        this.nearbyNPCs = new ArrayList<>();
+        this.rankedNPCs = new ArrayList<>();
+        this.toggleTicks = new HashMap<>();
+    }
+
+    /**
+     * Checks if the player has moved far enough from the last evaluated position.
+     *
+     * @param world     The current player world grid identifier.
+     * @param blockX    The current player block x.
+     * @param blockY    The current player block y.
+     * @param blockZ    The current player block z.
+     * @param threshold The minimum block distance.
+     * @return {@code true} If the visibility must be evaluated again.
+     */
+    public boolean hasMoved(int world, int blockX, int blockY, int blockZ, int threshold) {
+        return world != getLastWorld() ||
+                Math.abs(blockX - getLastBlockX()) >= threshold ||
+                Math.abs(blockY - getLastBlockY()) >= threshold ||
+                Math.abs(blockZ - getLastBlockZ()) >= threshold;
+    }
+
+    /**
+     * Marks the player as moved, the player position will be checked on the next ticks.
+     */
+    public void markMoved() {
+        moveChecks.set(MOVE_CHECKS);
+    }
+
+    /**
+     * Checks if the player position must be checked on this tick.
+     *
+     * @return {@code true} If the player has moved recently.
+     */
+    public boolean consumeMoveCheck() {
+        return moveChecks.getAndUpdate(checks -> checks > 0 ? checks - 1 : 0) > 0;
+    }
+
+    /**
+     * Marks the given position as the last evaluated position.
+     *
+     * @param world  The player world grid identifier.
+     * @param blockX The player block x.
+     * @param blockY The player block y.
+     * @param blockZ The player block z.
+     */
+    public void updatePosition(int world, int blockX, int blockY, int blockZ) {
+        setLastWorld(world);
+        setLastBlockX(blockX);
+        setLastBlockY(blockY);
+        setLastBlockZ(blockZ);
+    }
+
+    /**
+     * Marks a npc as spawned or deleted for the player.
+     *
+     * @param npc  The npc.
+     * @param tick The current tick.
+     */
+    public void markToggled(ZNPC npc, long tick) {
+        toggleTicks.put(npc, tick);
+    }
+
+    /**
+     * Checks if a npc was spawned or deleted for the player within the dwell time.
+     *
+     * @param npc The npc.
+     * @return {@code true} If the npc state must be kept.
+     * @see #pruneToggles(long, int)
+     */
+    public boolean isToggledRecently(ZNPC npc) {
+        return toggleTicks.containsKey(npc);
+    }
+
+    /**
+     * Forgets the npcs seen & waiting to be spawned by the player.
+     */
+    public void clear() {
+        visibleNPCs.clear();
+        spawns.clear();
+        despawns.clear();
+        toggleTicks.clear();
+    }
+
+    /**
+     * Forgets the npcs toggled before the dwell time.
+     *
+     * @param tick       The current tick.
+     * @param dwellTicks The minimum ticks between a spawn & delete of the same npc.
+     */
+    public void pruneToggles(long tick, int dwellTicks) {
+        if (toggleTicks.isEmpty())
+            return;
+
+        toggleTicks.values().removeIf(toggleTick -> tick - toggleTick >= dwellTicks);
+    }
+}
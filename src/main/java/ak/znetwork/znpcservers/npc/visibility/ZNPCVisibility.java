@@ -0,0 +1,530 @@
+package ak.znetwork.znpcservers.npc.visibility;
+
+import ak.znetwork.znpcservers.manager.NPCManager;
+import ak.znetwork.znpcservers.npc.ZNPC;
+import ak.znetwork.znpcservers.npc.grid.ZNPCGrid;
+import ak.znetwork.znpcservers.types.ConfigTypes;
+import ak.znetwork.znpcservers.user.ZNPCUser;
+
+import org.bukkit.Location;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Keeps the npcs that each player can see up to date.
+ *
+ * <p>The visibility of a player is only evaluated again when the player has moved
+ * far enough, changed world or when a npc near the player has changed, the
+ * differences are then applied as spawns & deletes.</p>
+ *
+ * <p>The players can optionally be evaluated in parallel, the packets are
+ * always sent from the npc task thread.</p>
+ *
+ * <p>Copyright (c) ZNetwork, 2020.</p>
+ *
+ * @author ZNetwork
+ * @since 07/02/2020
+ */
+public final class ZNPCVisibility {
+
+    /**
+     * The squared distance where the npcs are spawned.
+     */
+    private static final double VIEW_DISTANCE_SQUARED = square(ConfigTypes.VIEW_DISTANCE);
+
+    /**
+     * The distance where the npcs are deleted, never lower than the spawn distance.
+     */
+    private static final int DESPAWN_DISTANCE = Math.max(ConfigTypes.VIEW_DISTANCE, ConfigTypes.VIEW_DESPAWN_DISTANCE);
+
+    /**
+     * The squared distance where the npcs are deleted.
+     */
+    private static final double DESPAWN_DISTANCE_SQUARED = square(DESPAWN_DISTANCE);
+
+    /**
+     * The squared distance from the last evaluated position where a changed npc may affect a player.
+     */
+    private static final double CHANGE_DISTANCE_SQUARED = square(DESPAWN_DISTANCE + (ConfigTypes.VIEW_MOVE_THRESHOLD * 2));
+
+    /**
+     * The interval (in ticks) to check the position of players that did not trigger a move
+     * event (players inside vehicles..).
+     */
+    private static final int POSITION_CHECK_INTERVAL = 20;
+
+    /**
+     * The minimum amount of players evaluated by each parallel task.
+     */
+    private static final int MIN_PLAYERS_PER_TASK = 16;
+
+    /**
+     * The pool used to evaluate the players in parallel or {@code null} if disabled.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The npcs that changed since the last tick.
+     */
+    private final List<ZNPC> changedNPCs;
+
+    /**
+     * The current tick.
+     */
+    private long currentTick;
+
+    /**
+     * Creates a new visibility engine.
+     *
+     * @param parallelism The amount of threads used to evaluate the players, {@code 0} to evaluate them on the current thread.
+     */
+    public ZNPCVisibility(int parallelism) {
+        this.pool = parallelism > 0 ? new ForkJoinPool(parallelism) : null;
+        this.changedNPCs = new ArrayList<>();
+    }
+
+    /**
+     * Updates the visibility for all players.
+     *
+     * <p>The players are evaluated first (in parallel if enabled), the
+     * resulting spawns, deletes & rotations are then sent from the current thread.</p>
+     *
+     * @param buffer The players positions copied from the main thread.
+     */
+    public void tick(ZNPCSnapshot.Buffer buffer) {
+        currentTick++;
+        changedNPCs.clear();
+
+        Iterator<ZNPC> iterator = ZNPCGrid.getChangedNPCs().iterator();
+        while (iterator.hasNext()) {
+            changedNPCs.add(iterator.next());
+
+            iterator.remove();
+        }
+
+        int size = buffer.getSize();
+        if (pool != null && size > MIN_PLAYERS_PER_TASK) {
+            pool.invoke(new EvaluateAction(buffer, 0, size));
+        } else {
+            for (int index = 0; index < size; index++) {
+                evaluate(buffer, index);
+            }
+        }
+
+        for (int index = 0; index < size; index++) {
+            flush(buffer, index);
+        }
+    }
+
+    /**
+     * Deletes the npcs seen by a player that left.
+     *
+     * Must be called from the npc task thread.
+     *
+     * @param user The player.
+     */
+    public void forget(ZNPCUser user) {
+        for (ZNPCGrid grid : ZNPCGrid.getGrids()) {
+            for (ZNPC npc : grid.getNpcs()) {
+                if (npc.getViewers().contains(user))
+                    npc.delete(user, true);
+            }
+        }
+
+        user.getViewer().clear();
+    }
+
+    /**
+     * Deletes the npcs of the previous world of a player.
+     *
+     * Must be called from the npc task thread.
+     *
+     * @param user    The player.
+     * @param oldGrid The previous world grid.
+     */
+    public void forgetWorld(ZNPCUser user, ZNPCGrid oldGrid) {
+        ZNPCViewer viewer = user.getViewer();
+
+        for (ZNPC npc : oldGrid.getNpcs()) {
+            if (npc.getViewers().contains(user))
+                npc.delete(user, true);
+
+            viewer.getVisibleNPCs().remove(npc);
+        }
+
+        viewer.getSpawns().removeIf(npc -> npc.getGrid() == oldGrid);
+        viewer.markMoved();
+    }
+
+    /**
+     * Forgets a npc that was removed or whose world was unloaded.
+     *
+     * Must be called from the npc task thread, after the npc was deleted for its viewers.
+     *
+     * @param npc The npc.
+     */
+    public void forgetNPC(ZNPC npc) {
+        for (ZNPCUser user : NPCManager.getNpcUsers()) {
+            user.getViewer().getVisibleNPCs().remove(npc);
+            user.getViewer().getSpawns().remove(npc);
+        }
+    }
+
+    /**
+     * Stops the parallel evaluation pool.
+     */
+    public void shutdown() {
+        if (pool != null)
+            pool.shutdownNow();
+    }
+
+    /**
+     * Computes the npcs to spawn & delete for a player of the snapshot if needed.
+     *
+     * Only the player visibility state is modified, so players can be evaluated concurrently.
+     *
+     * @param buffer The players snapshot.
+     * @param index  The player index in the snapshot.
+     */
+    private void evaluate(ZNPCSnapshot.Buffer buffer, int index) {
+        ZNPCUser user = buffer.getUsers()[index];
+        ZNPCViewer viewer = user.getViewer();
+        // The player left after the snapshot was taken
+        if (viewer.isClosed())
+            return;
+
+        int world = buffer.getWorlds()[index];
+        double x = buffer.getX()[index], y = buffer.getY()[index], z = buffer.getZ()[index];
+
+        int blockX = Location.locToBlock(x), blockY = Location.locToBlock(y), blockZ = Location.locToBlock(z);
+
+        // Stationary players are only evaluated again if a nearby npc changed
+        boolean checkPosition = viewer.consumeMoveCheck() || (currentTick + index) % POSITION_CHECK_INTERVAL == 0;
+        if ((checkPosition && viewer.hasMoved(world, blockX, blockY, blockZ, ConfigTypes.VIEW_MOVE_THRESHOLD)) || isAffected(viewer, user))
+            viewer.setDirty(true);
+
+        if (viewer.isDirty()) {
+            viewer.updatePosition(world, blockX, blockY, blockZ);
+
+            // Keep evaluating the player until the deferred npcs can be toggled
+            viewer.setDirty(evaluate(viewer, user, world, x, y, z));
+        }
+    }
+
+    /**
+     * Sends the computed spawns, deletes & rotations for a player of the snapshot.
+     *
+     * @param buffer The players snapshot.
+     * @param index  The player index in the snapshot.
+     */
+    private void flush(ZNPCSnapshot.Buffer buffer, int index) {
+        ZNPCUser user = buffer.getUsers()[index];
+        ZNPCViewer viewer = user.getViewer();
+        if (viewer.isClosed())
+            return;
+
+        apply(viewer, user, buffer.getWorlds()[index]);
+
+        for (ZNPC npc : viewer.getVisibleNPCs()) {
+            if (npc.isHasLookAt())
+                npc.lookAt(user, buffer.getX()[index], buffer.getY()[index], buffer.getZ()[index]);
+
+            npc.getHologram().updateNames(user, buffer.getPlayers()[index]);
+        }
+    }
+
+    /**
+     * Computes the npcs to spawn & delete for a player.
+     *
+     * <p>The npcs are spawned inside the view distance & deleted outside the despawn
+     * distance, a npc that was toggled recently keeps its state until the dwell time
+     * has passed.</p>
+     *
+     * @param viewer The player visibility state.
+     * @param user   The player.
+     * @param world  The player world grid identifier.
+     * @param x      The player x.
+     * @param y      The player y.
+     * @param z      The player z.
+     * @return {@code true} If a spawn or delete was deferred by the dwell time.
+     */
+    private boolean evaluate(ZNPCViewer viewer, ZNPCUser user, int world, double x, double y, double z) {
+        viewer.getSpawns().clear();
+        viewer.getDespawns().clear();
+        viewer.pruneToggles(currentTick, ConfigTypes.VIEW_DWELL_TICKS);
+
+        // Forget the npcs that were deleted for the player by other means (npc removed, skin or type changed..)
+        viewer.getVisibleNPCs().removeIf(npc -> !npc.getViewers().contains(user));
+
+        boolean deferred = false;
+
+        ZNPCGrid grid = ZNPCGrid.byId(world);
+        for (ZNPC npc : viewer.getVisibleNPCs()) {
+            if (canSee(grid, x, y, z, npc, DESPAWN_DISTANCE_SQUARED))
+                continue;
+
+            // The npcs of other worlds are always deleted
+            if (npc.getGrid() == grid && viewer.isToggledRecently(npc)) {
+                deferred = true;
+                continue;
+            }
+
+            viewer.getDespawns().add(npc);
+        }
+
+        List<ZNPC> nearbyNPCs = viewer.getNearbyNPCs();
+        nearbyNPCs.clear();
+        grid.collect(x, z, ConfigTypes.VIEW_DISTANCE, nearbyNPCs);
+
+        for (ZNPC npc : nearbyNPCs) {
+            if (viewer.getVisibleNPCs().contains(npc) || !canSee(grid, x, y, z, npc, VIEW_DISTANCE_SQUARED))
+                continue;
+
+            if (viewer.isToggledRecently(npc)) {
+                deferred = true;
+                continue;
+            }
+
+            viewer.getSpawns().add(npc);
+        }
+
+        if (ConfigTypes.MAX_VISIBLE_NPCS > 0)
+            deferred |= limit(viewer, x, y, z, ConfigTypes.MAX_VISIBLE_NPCS);
+
+        // The spawns are sent over the next ticks, nearest first
+        if (ConfigTypes.NPC_SPAWN_RATE > 0 && viewer.getSpawns().size() > ConfigTypes.NPC_SPAWN_RATE)
+            viewer.getSpawns().sort(Comparator.comparingDouble(npc -> distanceSquared(npc, x, y, z)));
+
+        return deferred;
+    }
+
+    /**
+     * Limits the npcs that a player can see, keeping the npcs with the best score.
+     *
+     * <p>The score of a npc is its squared distance divided by its squared priority
+     * weight, so a npc with priority {@code 1} is ranked as if it was at half the distance.</p>
+     *
+     * @param viewer The player visibility state.
+     * @param x      The player x.
+     * @param y      The player y.
+     * @param z      The player z.
+     * @param limit  The maximum amount of visible npcs.
+     * @return {@code true} If a delete was deferred by the dwell time.
+     */
+    private boolean limit(ZNPCViewer viewer, double x, double y, double z, int limit) {
+        List<ZNPC> rankedNPCs = viewer.getRankedNPCs();
+        rankedNPCs.clear();
+
+        for (ZNPC npc : viewer.getVisibleNPCs()) {
+            if (!viewer.getDespawns().contains(npc))
+                rankedNPCs.add(npc);
+        }
+        rankedNPCs.addAll(viewer.getSpawns());
+
+        if (rankedNPCs.size() <= limit)
+            return false;
+
+        rankedNPCs.sort(Comparator.comparingDouble(npc -> score(npc, x, y, z)));
+        viewer.getSpawns().clear();
+
+        boolean deferred = false;
+        int visible = 0;
+
+        // Swap out the visible npcs outside the limit
+        for (int index = limit; index < rankedNPCs.size(); index++) {
+            ZNPC npc = rankedNPCs.get(index);
+            if (!viewer.getVisibleNPCs().contains(npc))
+                continue;
+
+            if (viewer.isToggledRecently(npc)) {
+                deferred = true;
+                visible++;
+            } else {
+                viewer.getDespawns().add(npc);
+            }
+        }
+
+        for (int index = 0; index < limit; index++) {
+            if (viewer.getVisibleNPCs().contains(rankedNPCs.get(index)))
+                visible++;
+        }
+
+        // Swap in the best npcs while there is room
+        for (int index = 0; index < limit && visible < limit; index++) {
+            ZNPC npc = rankedNPCs.get(index);
+            if (viewer.getVisibleNPCs().contains(npc))
+                continue;
+
+            viewer.getSpawns().add(npc);
+            visible++;
+        }
+        return deferred;
+    }
+
+    /**
+     * Applies the computed deletes & the pending spawns for a player.
+     *
+     * <p>If a spawn rate is set, only that amount of npcs are spawned, the
+     * remaining spawns are kept for the next ticks.</p>
+     *
+     * @param viewer The player visibility state.
+     * @param user   The player.
+     * @param world  The player world grid identifier.
+     */
+    private void apply(ZNPCViewer viewer, ZNPCUser user, int world) {
+        for (ZNPC npc : viewer.getDespawns()) {
+            npc.delete(user, true);
+
+            viewer.getVisibleNPCs().remove(npc);
+            viewer.markToggled(npc, currentTick);
+        }
+
+        viewer.getDespawns().clear();
+
+        List<ZNPC> spawns = viewer.getSpawns();
+        int amount = ConfigTypes.NPC_SPAWN_RATE > 0 ? Math.min(ConfigTypes.NPC_SPAWN_RATE, spawns.size()) : spawns.size();
+        for (int index = 0; index < amount; index++) {
+            ZNPC npc = spawns.get(index);
+            // The npc was deleted or the player changed world while waiting
+            if (npc.getGrid() == null || npc.getGrid().getId() != world)
+                continue;
+
+            npc.spawn(user);
+
+            viewer.getVisibleNPCs().add(npc);
+            viewer.markToggled(npc, currentTick);
+        }
+
+        if (amount == spawns.size()) spawns.clear();
+        else spawns.subList(0, amount).clear();
+    }
+
+    /**
+     * Checks if any changed npc may affect the visibility of a player.
+     *
+     * @param viewer The player visibility state.
+     * @param user   The player.
+     * @return {@code true} If the visibility must be evaluated again.
+     */
+    private boolean isAffected(ZNPCViewer viewer, ZNPCUser user) {
+        for (ZNPC npc : changedNPCs) {
+            if (npc.getViewers().contains(user))
+                return true;
+
+            if (npc.getGrid() == null || npc.getGrid().getId() != viewer.getLastWorld())
+                continue;
+
+            Location npcLocation = npc.getLocation();
+            double distanceSquared = square(npcLocation.getX() - (viewer.getLastBlockX() + 0.5)) +
+                    square(npcLocation.getY() - viewer.getLastBlockY()) +
+                    square(npcLocation.getZ() - (viewer.getLastBlockZ() + 0.5));
+
+            if (distanceSquared <= CHANGE_DISTANCE_SQUARED)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a npc is in the given distance of a position.
+     *
+     * @param grid            The position world grid.
+     * @param x               The position x.
+     * @param y               The position y.
+     * @param z               The position z.
+     * @param npc             The npc.
+     * @param distanceSquared The squared distance.
+     * @return {@code true} If the npc can be seen from the position.
+     */
+    private static boolean canSee(ZNPCGrid grid, double x, double y, double z, ZNPC npc, double distanceSquared) {
+        if (npc.getGrid() != grid)
+            return false;
+
+        return distanceSquared(npc, x, y, z) <= distanceSquared;
+    }
+
+    /**
+     * Computes the visibility score of a npc, lower is better.
+     *
+     * @param npc The npc.
+     * @param x   The player x.
+     * @param y   The player y.
+     * @param z   The player z.
+     * @return    The npc score.
+     */
+    private static double score(ZNPC npc, double x, double y, double z) {
+        return distanceSquared(npc, x, y, z) / square(1 + Math.max(0, npc.getPriority()));
+    }
+
+    /**
+     * Computes the squared distance between a npc & a position.
+     *
+     * @param npc The npc.
+     * @param x   The position x.
+     * @param y   The position y.
+     * @param z   The position z.
+     * @return    The squared distance.
+     */
+    private static double distanceSquared(ZNPC npc, double x, double y, double z) {
+        Location npcLocation = npc.getLocation();
+        return square(npcLocation.getX() - x) + square(npcLocation.getY() - y) + square(npcLocation.getZ() - z);
+    }
+
+    /**
+     * Multiplies a value by itself.
+     *
+     * @param value The value.
+     * @return      The squared value.
+     */
+    private static double square(double value) {
+        return value * value;
+    }
+
+    /**
+     * Evaluates a range of players of the snapshot, splitting the range
+     * between the pool threads.
+     */
+    private final class EvaluateAction extends RecursiveAction {
+
+        /**
+         * The players snapshot.
+         */
+        private final ZNPCSnapshot.Buffer buffer;
+
+        /**
+         * The players range (start inclusive, end exclusive).
+         */
+        private final int start, end;
+
+        /**
+         * Creates a new task to evaluate a range of players.
+         *
+         * @param buffer The players snapshot.
+         * @param start  The first player index.
+         * @param end    The last player index (exclusive).
+         */
+        EvaluateAction(ZNPCSnapshot.Buffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= MIN_PLAYERS_PER_TASK) {
+                for (int index = start; index < end; index++) {
+                    evaluate(buffer, index);
+                }
+                return;
+            }
+
+            int middle = (start + end) >>> 1;
+            invokeAll(new EvaluateAction(buffer, start, middle), new EvaluateAction(buffer, middle, end));
+        }
+    }
+}
@@ -2,26 +2,69 @@ package ak.znetwork.znpcservers.tasks;
 
 import ak.znetwork.znpcservers.ServersNPC;
 import ak.znetwork.znpcservers.npc.ZNPC;
+import ak.znetwork.znpcservers.npc.grid.ZNPCGrid;
+import ak.znetwork.znpcservers.npc.visibility.ZNPCSnapshot;
+import ak.znetwork.znpcservers.npc.visibility.ZNPCVisibility;
 import ak.znetwork.znpcservers.types.ConfigTypes;
-import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
+import ak.znetwork.znpcservers.user.ZNPCUser;
 
-import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
 
 /**
+ * Handles the npcs paths & visibility on a dedicated tick thread.
+ *
  * <p>Copyright (c) ZNetwork, 2020.</p>
  *
  * @author ZNetwork
  * @since 07/02/2020
  */
-public final class NPCManagerTask extends BukkitRunnable {
+@Getter
+public final class NPCManagerTask implements Runnable {
+
+    /**
+     * The tick period (in milliseconds), same as a server tick.
+     */
+    private static final long TICK_PERIOD = 50L;
+
+    /**
+     * The delay before the first tick (in milliseconds).
+     */
+    private static final long START_DELAY = 3000L;
 
     /**
      * The plugin instance.
      */
     private final ServersNPC serversNPC;
 
+    /**
+     * The players positions copied from the main thread.
+     */
+    private final ZNPCSnapshot snapshot;
+
+    /**
+     * The task that copies the players positions.
+     */
+    private final NPCSnapshotTask snapshotTask;
+
+    /**
+     * The npcs visibility engine.
+     */
+    private final ZNPCVisibility visibility;
+
+    /**
+     * The npcs tick thread.
+     */
+    private final NPCTickExecutor executor;
+
+    /**
+     * The tasks to run on the tick thread before the next evaluation.
+     */
+    private final Queue<Runnable> pendingTasks;
+
     /**
      * Creates a new task for all NPC.
      * This task will handle each npc.
@@ -31,30 +74,65 @@ public final class NPCManagerTask extends BukkitRunnable {
     public NPCManagerTask(ServersNPC serversNPC) {
         this.serversNPC = serversNPC;
 
-        this.runTaskTimerAsynchronously(this.serversNPC, 60L, 1L);
+        this.snapshot = new ZNPCSnapshot();
+        this.snapshotTask = new NPCSnapshotTask(serversNPC, snapshot);
+        this.visibility = new ZNPCVisibility(ConfigTypes.VIEW_PARALLELISM);
+        this.pendingTasks = new ConcurrentLinkedQueue<>();
+
+        this.executor = new NPCTickExecutor(this, TICK_PERIOD, START_DELAY, TimeUnit.MILLISECONDS);
+        this.executor.start();
     }
 
     @Override
     public void run() {
-        for (ZNPC npc : ConfigTypes.NPC_LIST) {
-            npc.handlePath();
-
-            for (Player player : Bukkit.getOnlinePlayers()) {
-                boolean canSeeNPC = player.getWorld() == npc.getLocation().getWorld() && player.getLocation().distance(npc.getLocation()) <= ConfigTypes.VIEW_DISTANCE;
+        if (ConfigTypes.PACKET_BATCHING)
+            ZNPCUser.beginBatch();
 
-                if (npc.getViewers().contains(player) && !canSeeNPC)
-                    npc.delete(player, true);
-                else if (canSeeNPC) {
-                    if (!npc.getViewers().contains(player)) {
-                        npc.spawn(player);
-                    }
+        ZNPCUser.beginDestroyBatch();
 
-                    if (npc.isHasLookAt())
-                        npc.lookAt(player, player.getLocation(), false);
+        ZNPCSnapshot.Buffer buffer = snapshot.acquire();
+        try {
+            // The players state is only modified from this thread
+            Runnable task;
+            while ((task = pendingTasks.poll()) != null) {
+                task.run();
+            }
 
-                    npc.getHologram().updateNames(player);
+            // Only the worlds with players are handled
+            for (ZNPCGrid grid : buffer.getActiveGrids()) {
+                for (ZNPC npc : grid.getNpcs()) {
+                    npc.handlePath();
                 }
             }
+
+            visibility.tick(buffer);
+        } finally {
+            snapshot.release(buffer);
+
+            // Destroy the npcs deleted this tick with one packet per player
+            ZNPCUser.flushDestroyBatch();
+
+            // Send all packets of the tick at once
+            ZNPCUser.flushBatch();
         }
     }
+
+    /**
+     * Runs a task on the tick thread before the next evaluation.
+     *
+     * @param task The task to run.
+     */
+    public void execute(Runnable task) {
+        pendingTasks.add(task);
+    }
+
+    /**
+     * Stops the tick thread & the visibility threads.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        snapshotTask.cancel();
+
+        visibility.shutdown();
+    }
 }
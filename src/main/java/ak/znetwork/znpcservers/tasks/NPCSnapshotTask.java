@@ -0,0 +1,39 @@
+package ak.znetwork.znpcservers.tasks;
+
+import ak.znetwork.znpcservers.ServersNPC;
+import ak.znetwork.znpcservers.npc.visibility.ZNPCSnapshot;
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * A Task to copy the players positions for the npc task.
+ *
+ * <p>Copyright (c) ZNetwork, 2020.</p>
+ *
+ * @author ZNetwork
+ * @since 07/02/2020
+ */
+public final class NPCSnapshotTask extends BukkitRunnable {
+
+    /**
+     * The players snapshot.
+     */
+    private final ZNPCSnapshot snapshot;
+
+    /**
+     * Initialization of the task to copy the players positions.
+     *
+     * @param serversNPC The plugin instance.
+     * @param snapshot   The players snapshot.
+     */
+    public NPCSnapshotTask(ServersNPC serversNPC,
+                           ZNPCSnapshot snapshot) {
+        this.snapshot = snapshot;
+
+        this.runTaskTimer(serversNPC, 0L, 1L);
+    }
+
+    @Override
+    public void run() {
+        snapshot.capture();
+    }
+}
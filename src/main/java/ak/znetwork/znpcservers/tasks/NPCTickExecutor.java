@@ -0,0 +1,186 @@
+package ak.znetwork.znpcservers.tasks;
+
+import org.bukkit.Bukkit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import lombok.Getter;
+
+/**
+ * Runs a task on its own thread at a fixed rate.
+ *
+ * <p>Each tick is scheduled from the start time, so small delays do not accumulate.
+ * When a tick overruns, the missed ticks are skipped and coalesced into a single tick.</p>
+ *
+ * <p>Copyright (c) ZNetwork, 2020.</p>
+ *
+ * @author ZNetwork
+ * @since 07/02/2020
+ */
+@Getter
+public final class NPCTickExecutor implements Runnable {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = Bukkit.getLogger();
+
+    /**
+     * The thread name.
+     */
+    private static final String THREAD_NAME = "ZNPCS Tick Thread";
+
+    /**
+     * The task to run every tick.
+     */
+    private final Runnable task;
+
+    /**
+     * The tick period (in nanoseconds).
+     */
+    private final long periodNanos;
+
+    /**
+     * The delay before the first tick (in nanoseconds).
+     */
+    private final long delayNanos;
+
+    /**
+     * The tick thread.
+     */
+    private final Thread thread;
+
+    /**
+     * Determines if the executor is running.
+     */
+    private volatile boolean running;
+
+    /**
+     * The amount of executed ticks.
+     */
+    private volatile long ticks;
+
+    /**
+     * The amount of ticks that took longer than the period.
+     */
+    private volatile long overruns;
+
+    /**
+     * The amount of ticks skipped after an overrun.
+     */
+    private volatile long skippedTicks;
+
+    /**
+     * The duration of the last tick (in nanoseconds).
+     */
+    private volatile long lastTickNanos;
+
+    /**
+     * The longest tick duration (in nanoseconds).
+     */
+    private volatile long maxTickNanos;
+
+    /**
+     * The total duration of all ticks (in nanoseconds).
+     */
+    private volatile long totalTickNanos;
+
+    /**
+     * Creates a new tick executor.
+     *
+     * @param task     The task to run every tick.
+     * @param period   The tick period.
+     * @param delay    The delay before the first tick.
+     * @param timeUnit The period & delay unit.
+     */
+    public NPCTickExecutor(Runnable task,
+                           long period,
+                           long delay,
+                           TimeUnit timeUnit) {
+        this.task = task;
+        this.periodNanos = timeUnit.toNanos(period);
+        this.delayNanos = timeUnit.toNanos(delay);
+
+        this.thread = new Thread(this, THREAD_NAME);
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MAX_PRIORITY - 1);
+    }
+
+    /**
+     * Starts the tick thread.
+     */
+    public void start() {
+        running = true;
+
+        thread.start();
+    }
+
+    /**
+     * Stops the tick thread & waits for the current tick to finish.
+     */
+    public void shutdown() {
+        running = false;
+
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.NANOSECONDS.toMillis(periodNanos) * 20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime() + delayNanos;
+
+        while (running) {
+            long now = System.nanoTime();
+            if (now < nextTick) {
+                LockSupport.parkNanos(this, nextTick - now);
+                continue;
+            }
+
+            try {
+                task.run();
+            } catch (Throwable throwable) {
+                LOGGER.log(Level.SEVERE, "An error occurred while ticking the npcs", throwable);
+            }
+
+            long end = System.nanoTime();
+            long duration = end - now;
+
+            ticks++;
+            lastTickNanos = duration;
+            totalTickNanos += duration;
+            if (duration > maxTickNanos)
+                maxTickNanos = duration;
+
+            if (duration > periodNanos)
+                overruns++;
+
+            // Schedule from the previous tick to compensate the drift
+            nextTick += periodNanos;
+
+            if (end - nextTick >= periodNanos) {
+                // Coalesce the missed ticks into the next tick
+                long missedTicks = (end - nextTick) / periodNanos;
+
+                skippedTicks += missedTicks;
+                nextTick += missedTicks * periodNanos;
+            }
+        }
+    }
+
+    /**
+     * Gets the average tick duration (in nanoseconds).
+     *
+     * @return The average tick duration.
+     */
+    public long getAverageTickNanos() {
+        long ticks = this.ticks;
+        return ticks == 0 ? 0 : totalTickNanos / ticks;
+    }
+}
@@ -0,0 +1,39 @@
+package ak.znetwork.znpcservers.tasks;
+
+import ak.znetwork.znpcservers.ServersNPC;
+import ak.znetwork.znpcservers.utility.PlaceholderCache;
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * A Task to refresh the expired placeholders.
+ *
+ * <p>Copyright (c) ZNetwork, 2020.</p>
+ *
+ * @author ZNetwork
+ * @since 07/02/2020
+ */
+public final class PlaceholderRefreshTask extends BukkitRunnable {
+
+    /**
+     * The placeholders cache.
+     */
+    private final PlaceholderCache placeholderCache;
+
+    /**
+     * Initialization of the task to refresh the expired placeholders.
+     *
+     * @param serversNPC       The plugin instance.
+     * @param placeholderCache The placeholders cache.
+     */
+    public PlaceholderRefreshTask(ServersNPC serversNPC,
+                                  PlaceholderCache placeholderCache) {
+        this.placeholderCache = placeholderCache;
+
+        this.runTaskTimer(serversNPC, 1L, 1L);
+    }
+
+    @Override
+    public void run() {
+        placeholderCache.refreshExpired();
+    }
+}
@@ -3,9 +3,13 @@ package ak.znetwork.znpcservers.types;
 import ak.znetwork.znpcservers.cache.builder.ClassCacheBuilder;
 import ak.znetwork.znpcservers.cache.enums.PackageType;
 import ak.znetwork.znpcservers.cache.impl.ClassCacheImpl;
+import ak.znetwork.znpcservers.utility.Utils;
 import com.mojang.authlib.GameProfile;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
 import org.bukkit.inventory.ItemStack;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -21,6 +25,16 @@ import java.util.List;
  */
 public class ClassTypes {
 
+    /**
+     * The type of the relative move deltas for the current version.
+     */
+    private static final Class<?> REL_MOVE_DELTA_CLASS = Utils.versionNewer(14) ? short.class : Utils.versionNewer(9) ? long.class : byte.class;
+
+    /**
+     * The name of the data watcher entry class for the current version.
+     */
+    private static final String DATA_WATCHER_ITEM_NAME = Utils.versionNewer(9) ? "DataWatcher$Item" : "DataWatcher$WatchableObject";
+
     /**
      * {@inheritDoc}
      */
@@ -445,6 +459,14 @@ public class ClassTypes {
             className("DataWatcher")).
     typeOf();
 
+    /**
+     * {@inheritDoc}
+     */
+    public static final Class<?> DATA_WATCHER_ITEM_CLASS = new ClassCacheImpl.Default.ClassLoader(new ClassCacheBuilder().
+            packageType(PackageType.MINECRAFT_SERVER).
+            className(DATA_WATCHER_ITEM_NAME)).
+    typeOf();
+
     /**
      * {@inheritDoc}
      */
@@ -537,6 +559,15 @@ public class ClassTypes {
             parameterTypes(ClassTypes.ENTITY_CLASS, byte.class)).
     typeOf();
 
+    /**
+     * {@inheritDoc}
+     */
+    public static final Constructor<?> PACKET_PLAY_OUT_REL_ENTITY_MOVE_LOOK_CONSTRUCTOR = new ClassCacheImpl.Default.ConstructorLoader(new ClassCacheBuilder().
+            packageType(PackageType.MINECRAFT_SERVER).
+            className("PacketPlayOutEntity$PacketPlayOutRelEntityMoveLook").
+            parameterTypes(int.class, REL_MOVE_DELTA_CLASS, REL_MOVE_DELTA_CLASS, REL_MOVE_DELTA_CLASS, byte.class, byte.class, boolean.class)).
+    typeOf();
+
     /**
      * {@inheritDoc}
      */
@@ -600,6 +631,14 @@ public class ClassTypes {
             parameterTypes(WORLD_SERVER_CLASS)).
             typeOf();
 
+    /**
+     * {@inheritDoc}
+     */
+    public static final Constructor<?> PACKET_PLAY_OUT_ENTITY_META_DATA_EMPTY_CONSTRUCTOR = new ClassCacheImpl.Default.ConstructorLoader(new ClassCacheBuilder().
+            packageType(PackageType.MINECRAFT_SERVER).
+            className("PacketPlayOutEntityMetadata")).
+    typeOf();
+
     /**
      * {@inheritDoc}
      */
@@ -727,6 +766,16 @@ public class ClassTypes {
             parameterTypes(PACKET_CLASS)).
     typeOf();
 
+    /**
+     * {@inheritDoc}
+     */
+    public static final Method PACKET_ENCODER_ENCODE_METHOD = new ClassCacheImpl.Default.MethodLoader(new ClassCacheBuilder().
+            packageType(PackageType.MINECRAFT_SERVER).
+            className("PacketEncoder").
+            methodName("encode").
+            parameterTypes(ChannelHandlerContext.class, PACKET_CLASS, ByteBuf.class)).
+    typeOf();
+
     /**
      * {@inheritDoc}
      */
@@ -797,6 +846,51 @@ public class ClassTypes {
             parameterTypes(int.class, Object.class)).
     typeOf();
 
+    /**
+     * {@inheritDoc}
+     */
+    public static final Method DATA_WATCHER_ITEMS_METHOD = new ClassCacheImpl.Default.MethodLoader(new ClassCacheBuilder().
+            packageType(PackageType.MINECRAFT_SERVER).
+            className("DataWatcher").
+            methodName("c")).
+    typeOf();
+
+    /**
+     * {@inheritDoc}
+     */
+    public static final Method DATA_WATCHER_ITEM_KEY_METHOD = new ClassCacheImpl.Default.MethodLoader(new ClassCacheBuilder().
+            packageType(PackageType.MINECRAFT_SERVER).
+            className(DATA_WATCHER_ITEM_NAME).
+            methodName("a")).
+    typeOf();
+
+    /**
+     * {@inheritDoc}
+     */
+    public static final Method DATA_WATCHER_ITEM_VALUE_METHOD = new ClassCacheImpl.Default.MethodLoader(new ClassCacheBuilder().
+            packageType(PackageType.MINECRAFT_SERVER).
+            className(DATA_WATCHER_ITEM_NAME).
+            methodName("b")).
+    typeOf();
+
+    /**
+     * The data type of a data watcher entry, only used for v1.8.
+     */
+    public static final Method DATA_WATCHER_ITEM_TYPE_METHOD = new ClassCacheImpl.Default.MethodLoader(new ClassCacheBuilder().
+            packageType(PackageType.MINECRAFT_SERVER).
+            className(DATA_WATCHER_ITEM_NAME).
+            methodName("c")).
+    typeOf();
+
+    /**
+     * {@inheritDoc}
+     */
+    public static final Constructor<?> DATA_WATCHER_ITEM_CONSTRUCTOR = new ClassCacheImpl.Default.ConstructorLoader(new ClassCacheBuilder().
+            packageType(PackageType.MINECRAFT_SERVER).
+            className(DATA_WATCHER_ITEM_NAME).
+            parameterTypes(Utils.versionNewer(9) ? new Class<?>[]{DATA_WATCHER_OBJECT, Object.class} : new Class<?>[]{int.class, int.class, Object.class})).
+    typeOf();
+
     /**
      * {@inheritDoc}
      */
@@ -896,6 +990,92 @@ public class ClassTypes {
             fieldName("a")).
     typeOf();
 
+    /**
+     * {@link #SEND_PACKET_METHOD} as a method handle.
+     */
+    public static final MethodHandle SEND_PACKET_HANDLE = ClassCacheImpl.Default.toRequiredHandle(SEND_PACKET_METHOD, "SEND_PACKET_METHOD");
+
+    /**
+     * {@link #GET_ENTITY_ID} as a method handle.
+     */
+    public static final MethodHandle GET_ENTITY_ID_HANDLE = ClassCacheImpl.Default.toRequiredHandle(GET_ENTITY_ID, "GET_ENTITY_ID");
+
+    /**
+     * {@link #GET_DATA_WATCHER_METHOD} as a method handle.
+     */
+    public static final MethodHandle GET_DATA_WATCHER_HANDLE = ClassCacheImpl.Default.toRequiredHandle(GET_DATA_WATCHER_METHOD, "GET_DATA_WATCHER_METHOD");
+
+    /**
+     * {@link #SET_LOCATION_METHOD} as a method handle.
+     */
+    public static final MethodHandle SET_LOCATION_HANDLE = ClassCacheImpl.Default.toRequiredHandle(SET_LOCATION_METHOD, "SET_LOCATION_METHOD");
+
+    /**
+     * {@link #PACKET_PLAY_OUT_ENTITY_LOOK_CONSTRUCTOR} as a method handle.
+     */
+    public static final MethodHandle PACKET_PLAY_OUT_ENTITY_LOOK_HANDLE = ClassCacheImpl.Default.toRequiredHandle(PACKET_PLAY_OUT_ENTITY_LOOK_CONSTRUCTOR, "PACKET_PLAY_OUT_ENTITY_LOOK_CONSTRUCTOR");
+
+    /**
+     * {@link #PACKET_PLAY_OUT_ENTITY_HEAD_ROTATION_CONSTRUCTOR} as a method handle.
+     */
+    public static final MethodHandle PACKET_PLAY_OUT_ENTITY_HEAD_ROTATION_HANDLE = ClassCacheImpl.Default.toRequiredHandle(PACKET_PLAY_OUT_ENTITY_HEAD_ROTATION_CONSTRUCTOR, "PACKET_PLAY_OUT_ENTITY_HEAD_ROTATION_CONSTRUCTOR");
+
+    /**
+     * {@link #PACKET_PLAY_OUT_ENTITY_TELEPORT_CONSTRUCTOR} as a method handle.
+     */
+    public static final MethodHandle PACKET_PLAY_OUT_ENTITY_TELEPORT_HANDLE = ClassCacheImpl.Default.toRequiredHandle(PACKET_PLAY_OUT_ENTITY_TELEPORT_CONSTRUCTOR, "PACKET_PLAY_OUT_ENTITY_TELEPORT_CONSTRUCTOR");
+
+    /**
+     * {@link #PACKET_PLAY_OUT_REL_ENTITY_MOVE_LOOK_CONSTRUCTOR} as a method handle,
+     * {@code null} if not found (the moves are sent as teleports).
+     */
+    public static final MethodHandle PACKET_PLAY_OUT_REL_ENTITY_MOVE_LOOK_HANDLE = ClassCacheImpl.Default.toHandle(PACKET_PLAY_OUT_REL_ENTITY_MOVE_LOOK_CONSTRUCTOR);
+
+    /**
+     * {@link #PACKET_PLAY_OUT_ENTITY_META_DATA_CONSTRUCTOR} as a method handle.
+     */
+    public static final MethodHandle PACKET_PLAY_OUT_ENTITY_META_DATA_HANDLE = ClassCacheImpl.Default.toRequiredHandle(PACKET_PLAY_OUT_ENTITY_META_DATA_CONSTRUCTOR, "PACKET_PLAY_OUT_ENTITY_META_DATA_CONSTRUCTOR");
+
+    /**
+     * {@link #DATA_WATCHER_ITEMS_METHOD} as a method handle.
+     */
+    public static final MethodHandle DATA_WATCHER_ITEMS_HANDLE = ClassCacheImpl.Default.toRequiredHandle(DATA_WATCHER_ITEMS_METHOD, "DATA_WATCHER_ITEMS_METHOD");
+
+    /**
+     * {@link #DATA_WATCHER_ITEM_KEY_METHOD} as a method handle.
+     */
+    public static final MethodHandle DATA_WATCHER_ITEM_KEY_HANDLE = ClassCacheImpl.Default.toRequiredHandle(DATA_WATCHER_ITEM_KEY_METHOD, "DATA_WATCHER_ITEM_KEY_METHOD");
+
+    /**
+     * {@link #DATA_WATCHER_ITEM_VALUE_METHOD} as a method handle.
+     */
+    public static final MethodHandle DATA_WATCHER_ITEM_VALUE_HANDLE = ClassCacheImpl.Default.toRequiredHandle(DATA_WATCHER_ITEM_VALUE_METHOD, "DATA_WATCHER_ITEM_VALUE_METHOD");
+
+    /**
+     * {@link #DATA_WATCHER_ITEM_TYPE_METHOD} as a method handle, {@code null} if not found.
+     */
+    public static final MethodHandle DATA_WATCHER_ITEM_TYPE_HANDLE = ClassCacheImpl.Default.toHandle(DATA_WATCHER_ITEM_TYPE_METHOD);
+
+    /**
+     * {@link #DATA_WATCHER_ITEM_CONSTRUCTOR} as a method handle.
+     */
+    public static final MethodHandle DATA_WATCHER_ITEM_HANDLE = ClassCacheImpl.Default.toRequiredHandle(DATA_WATCHER_ITEM_CONSTRUCTOR, "DATA_WATCHER_ITEM_CONSTRUCTOR");
+
+    /**
+     * {@link #PACKET_PLAY_OUT_NAMED_ENTITY_CONSTRUCTOR} as a method handle.
+     */
+    public static final MethodHandle PACKET_PLAY_OUT_NAMED_ENTITY_HANDLE = ClassCacheImpl.Default.toRequiredHandle(PACKET_PLAY_OUT_NAMED_ENTITY_CONSTRUCTOR, "PACKET_PLAY_OUT_NAMED_ENTITY_CONSTRUCTOR");
+
+    /**
+     * {@link #PACKET_PLAY_OUT_SPAWN_ENTITY_CONSTRUCTOR} as a method handle.
+     */
+    public static final MethodHandle PACKET_PLAY_OUT_SPAWN_ENTITY_HANDLE = ClassCacheImpl.Default.toRequiredHandle(PACKET_PLAY_OUT_SPAWN_ENTITY_CONSTRUCTOR, "PACKET_PLAY_OUT_SPAWN_ENTITY_CONSTRUCTOR");
+
+    /**
+     * {@link #PACKET_PLAY_OUT_ENTITY_DESTROY_CONSTRUCTOR} as a method handle.
+     */
+    public static final MethodHandle PACKET_PLAY_OUT_ENTITY_DESTROY_HANDLE = ClassCacheImpl.Default.toRequiredHandle(PACKET_PLAY_OUT_ENTITY_DESTROY_CONSTRUCTOR, "PACKET_PLAY_OUT_ENTITY_DESTROY_CONSTRUCTOR");
+
     /**
      * {@inheritDoc}
      */
@@ -34,6 +34,56 @@ public class ConfigTypes {
      */
     public static final int VIEW_DISTANCE = ConfigManager.getByType(ZNConfigType.CONFIG).getValue(ZNConfigValue.VIEW_DISTANCE);
 
+    /**
+     * Represents how many blocks a player must move before the npcs visibility is checked again.
+     */
+    public static final int VIEW_MOVE_THRESHOLD = ConfigManager.getByType(ZNConfigType.CONFIG).getValue(ZNConfigValue.VIEW_MOVE_THRESHOLD);
+
+    /**
+     * Represents the distance where the NPCs are deleted.
+     */
+    public static final int VIEW_DESPAWN_DISTANCE = ConfigManager.getByType(ZNConfigType.CONFIG).getValue(ZNConfigValue.VIEW_DESPAWN_DISTANCE);
+
+    /**
+     * Represents the minimum ticks between a spawn & delete of the same npc for a player.
+     */
+    public static final int VIEW_DWELL_TICKS = ConfigManager.getByType(ZNConfigType.CONFIG).getValue(ZNConfigValue.VIEW_DWELL_TICKS);
+
+    /**
+     * Represents the maximum npcs visible at once for each player (0 = unlimited).
+     */
+    public static final int MAX_VISIBLE_NPCS = ConfigManager.getByType(ZNConfigType.CONFIG).getValue(ZNConfigValue.MAX_VISIBLE_NPCS);
+
+    /**
+     * Represents the maximum npcs spawned per tick for each player (0 = unlimited).
+     */
+    public static final int NPC_SPAWN_RATE = ConfigManager.getByType(ZNConfigType.CONFIG).getValue(ZNConfigValue.NPC_SPAWN_RATE);
+
+    /**
+     * Represents if the npc packets are flushed once per tick for each player.
+     */
+    public static final boolean PACKET_BATCHING = ConfigManager.getByType(ZNConfigType.CONFIG).getValue(ZNConfigValue.PACKET_BATCHING);
+
+    /**
+     * Represents if the packets sent to all viewers of a npc are encoded only once.
+     */
+    public static final boolean PACKET_ENCODE_ONCE = ConfigManager.getByType(ZNConfigType.CONFIG).getValue(ZNConfigValue.PACKET_ENCODE_ONCE);
+
+    /**
+     * Represents how many threads are used to check the npcs visibility (0 = disabled).
+     */
+    public static final int VIEW_PARALLELISM = ConfigManager.getByType(ZNConfigType.CONFIG).getValue(ZNConfigValue.VIEW_PARALLELISM);
+
+    /**
+     * Represents the ticks before a resolved placeholder is resolved again (0 = every time).
+     */
+    public static final int PLACEHOLDER_REFRESH_TICKS = ConfigManager.getByType(ZNConfigType.CONFIG).getValue(ZNConfigValue.PLACEHOLDER_REFRESH_TICKS);
+
+    /**
+     * Represents the refresh ticks for specific placeholders.
+     */
+    public static final List<String> PLACEHOLDER_REFRESH_INTERVALS = ConfigManager.getByType(ZNConfigType.CONFIG).getValue(ZNConfigValue.PLACEHOLDER_REFRESH_INTERVALS);
+
     /**
      * Represents how often the NPCs will be saved.
      */
@@ -47,7 +97,8 @@ public class ConfigTypes {
     static {
         // Init all saved NPC...
         ServersNPC.SCHEDULER.scheduleSyncDelayedTask(() ->
-                NPC_LIST.forEach(ZNPC::init),
+                // The npcs of unloaded worlds are loaded when the world loads
+                NPC_LIST.stream().filter(npc -> !npc.isSetup() && npc.isWorldLoaded()).forEach(ZNPC::init),
                 DELAY
         );
     }
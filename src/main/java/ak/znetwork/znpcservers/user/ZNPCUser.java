@@ -4,6 +4,7 @@ import ak.znetwork.znpcservers.ServersNPC;
 import ak.znetwork.znpcservers.events.NPCInteractEvent;
 import ak.znetwork.znpcservers.npc.ZNPC;
 import ak.znetwork.znpcservers.npc.enums.NPCAction;
+import ak.znetwork.znpcservers.npc.visibility.ZNPCViewer;
 import ak.znetwork.znpcservers.types.ClassTypes;
 import ak.znetwork.znpcservers.types.ConfigTypes;
 import ak.znetwork.znpcservers.utility.PlaceholderUtils;
@@ -11,15 +12,22 @@ import ak.znetwork.znpcservers.utility.ReflectionUtils;
 import ak.znetwork.znpcservers.utility.Utils;
 import com.google.common.collect.HashBasedTable;
 import com.mojang.authlib.GameProfile;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -38,11 +46,43 @@ public class ZNPCUser {
      */
     private static final String CHANNEL_NAME = "npc_interact";
 
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = Bukkit.getLogger();
+
+    /**
+     * The name of the minecraft packet encoder channel.
+     */
+    private static final String ENCODER_NAME = "encoder";
+
     /**
      * The default wait time between each npc interact.
      */
     private static int DEFAULT_DELAY = 2;
 
+    /**
+     * The users with packets waiting to be flushed on the current thread,
+     * {@code null} if the packets are sent immediately.
+     */
+    private static final ThreadLocal<List<ZNPCUser>> PENDING_FLUSH = new ThreadLocal<>();
+
+    /**
+     * The users with entities waiting to be destroyed on the current thread,
+     * {@code null} if the entities are destroyed immediately.
+     */
+    private static final ThreadLocal<List<ZNPCUser>> PENDING_DESTROY = new ThreadLocal<>();
+
+    /**
+     * The default amount of entity ids waiting to be destroyed.
+     */
+    private static final int DEFAULT_DESTROY_CAPACITY = 16;
+
+    /**
+     * The player connection.
+     */
+    private final Object playerConnection;
+
     /**
      * The player network manager.
      */
@@ -68,6 +108,31 @@ public class ZNPCUser {
      */
     private final UUID uuid;
 
+    /**
+     * The player channel packet encoder context.
+     */
+    private ChannelHandlerContext encoderContext;
+
+    /**
+     * Determines if the user has packets waiting to be flushed.
+     */
+    private boolean pendingFlush = false;
+
+    /**
+     * Determines if a packet could not be sent to the player, only the first failure is logged.
+     */
+    private volatile boolean sendFailed = false;
+
+    /**
+     * The entity ids waiting to be destroyed.
+     */
+    private int[] destroyIds = new int[DEFAULT_DESTROY_CAPACITY];
+
+    /**
+     * The amount of entity ids waiting to be destroyed.
+     */
+    private int destroySize;
+
     /**
      * Determines if player is creating a npc path.
      */
@@ -88,6 +153,11 @@ public class ZNPCUser {
      */
     private final ServersNPC serversNPC;
 
+    /**
+     * The npcs visibility state for the player.
+     */
+    private final ZNPCViewer viewer;
+
     /**
      * Creates a new USER Player.
      *
@@ -101,8 +171,10 @@ public class ZNPCUser {
         this.uuid = player.getUniqueId();
 
         this.actionDelay = HashBasedTable.create();
+        this.viewer = new ZNPCViewer();
 
-        this.networkManager = ClassTypes.NETWORK_MANAGER_FIELD.get(ClassTypes.PLAYER_CONNECTION_FIELD.get(ClassTypes.GET_HANDLE_PLAYER_METHOD.invoke(player)));
+        this.playerConnection = ClassTypes.PLAYER_CONNECTION_FIELD.get(ClassTypes.GET_HANDLE_PLAYER_METHOD.invoke(player));
+        this.networkManager = ClassTypes.NETWORK_MANAGER_FIELD.get(playerConnection);
         this.channel = (Channel) ClassTypes.CHANNEL_FIELD.get(networkManager);
 
         this.gameProfile = (GameProfile) ClassTypes.GET_PROFILE_METHOD.invoke(ClassTypes.GET_HANDLE_PLAYER_METHOD.invoke(player));
@@ -131,6 +203,250 @@ public class ZNPCUser {
         getChannel().eventLoop().execute(() -> channel.pipeline().remove(CHANNEL_NAME));
     }
 
+    /**
+     * Sends packets to the player.
+     *
+     * @param packets The packets to send.
+     */
+    public void sendPacket(Object... packets) {
+        List<ZNPCUser> pendingUsers = PENDING_FLUSH.get();
+        if (pendingUsers != null) {
+            markPending(pendingUsers);
+
+            // Written now, flushed at the end of the batch
+            for (Object packet : packets) {
+                channel.write(packet, channel.voidPromise());
+            }
+            return;
+        }
+
+        try {
+            for (Object packet : packets) {
+                ClassTypes.SEND_PACKET_HANDLE.invokeExact(playerConnection, packet);
+            }
+        } catch (Throwable throwable) {
+            if (sendFailed)
+                return;
+
+            sendFailed = true;
+            LOGGER.log(Level.WARNING, "Could not send a npc packet to player " + getUuid(), throwable);
+        }
+    }
+
+    /**
+     * Sends packets to a collection of users.
+     *
+     * @param users   The receivers of the packets.
+     * @param packets The packets to send.
+     */
+    public static void broadcast(Collection<ZNPCUser> users, Object... packets) {
+        if (ConfigTypes.PACKET_ENCODE_ONCE && ClassTypes.PACKET_ENCODER_ENCODE_METHOD != null && users.size() > 1) {
+            for (Object packet : packets) {
+                broadcastEncoded(users, packet);
+            }
+            return;
+        }
+
+        for (ZNPCUser user : users) {
+            user.sendPacket(packets);
+        }
+    }
+
+    /**
+     * Encodes a packet once & writes the encoded bytes to a collection of users.
+     *
+     * The packet is encoded & written on the event loop of each channel, in the same
+     * order as the other packets sent from the current thread. The first channel to
+     * write the packet encodes it, the other channels reuse the encoded bytes.
+     *
+     * @param users  The receivers of the packet.
+     * @param packet The packet to send.
+     */
+    private static void broadcastEncoded(Collection<ZNPCUser> users, Object packet) {
+        List<ZNPCUser> pendingUsers = PENDING_FLUSH.get();
+
+        List<ZNPCUser> receivers = new ArrayList<>(users);
+        ZNPCEncodedPacket encodedPacket = new ZNPCEncodedPacket(packet, receivers.size());
+        for (ZNPCUser user : receivers) {
+            // Flushed at the end of the batch
+            if (pendingUsers != null)
+                user.markPending(pendingUsers);
+
+            user.channel.eventLoop().execute(() -> user.writeEncoded(encodedPacket, pendingUsers == null));
+        }
+    }
+
+    /**
+     * Writes an encoded packet to the player, must be called from the channel event loop.
+     *
+     * If the packet cannot be encoded, it is sent through the player connection.
+     *
+     * @param encodedPacket The shared encoded packet.
+     * @param flush         Determines if the channel is flushed after the write.
+     */
+    private void writeEncoded(ZNPCEncodedPacket encodedPacket, boolean flush) {
+        ByteBuf encoded = null;
+        try {
+            ChannelHandlerContext context = getEncoderContext();
+            if (context != null)
+                encoded = encodedPacket.acquire(context);
+
+            if (encoded == null) {
+                sendPacket(encodedPacket.packet);
+                return;
+            }
+
+            if (flush) context.writeAndFlush(encoded, context.voidPromise());
+            else context.write(encoded, context.voidPromise());
+        } catch (Throwable throwable) {
+            // The bytes are released by the channel if the write failed
+            sendPacket(encodedPacket.packet);
+        } finally {
+            encodedPacket.release();
+        }
+    }
+
+    /**
+     * Encodes a packet with the given encoder.
+     *
+     * @param context The encoder context.
+     * @param packet  The packet to encode.
+     * @return        The encoded packet.
+     */
+    private static ByteBuf encode(ChannelHandlerContext context, Object packet) {
+        ByteBuf encoded = context.alloc().buffer();
+        try {
+            ClassTypes.PACKET_ENCODER_ENCODE_METHOD.invoke(context.handler(), context, packet, encoded);
+            return encoded;
+        } catch (IllegalAccessException | InvocationTargetException operationException) {
+            encoded.release();
+
+            throw new AssertionError(operationException);
+        }
+    }
+
+    /**
+     * Marks the user as having packets waiting to be flushed at the end of the current batch.
+     *
+     * @param pendingUsers The users with packets waiting to be flushed on the current thread.
+     */
+    private void markPending(List<ZNPCUser> pendingUsers) {
+        if (pendingFlush)
+            return;
+
+        pendingFlush = true;
+        pendingUsers.add(this);
+    }
+
+    /**
+     * Gets the player channel packet encoder context.
+     *
+     * @return The encoder context or {@code null} if not found.
+     */
+    public ChannelHandlerContext getEncoderContext() {
+        if (encoderContext == null || encoderContext.isRemoved())
+            encoderContext = channel.pipeline().context(ENCODER_NAME);
+
+        return encoderContext;
+    }
+
+    /**
+     * Starts a batch on the current thread, the packets sent will be written
+     * to the player channel but not flushed until {@link #flushBatch()} is called.
+     *
+     * Only the npc packets are held, the other packets of the channel are flushed as usual.
+     */
+    public static void beginBatch() {
+        PENDING_FLUSH.set(new ArrayList<>());
+    }
+
+    /**
+     * Flushes the packets written since {@link #beginBatch()} with a single flush per user.
+     */
+    public static void flushBatch() {
+        List<ZNPCUser> pendingUsers = PENDING_FLUSH.get();
+        if (pendingUsers == null)
+            return;
+
+        PENDING_FLUSH.remove();
+
+        for (ZNPCUser user : pendingUsers) {
+            user.pendingFlush = false;
+            user.channel.flush();
+        }
+    }
+
+    /**
+     * Destroys entities for the player.
+     *
+     * If a destroy batch was started on the current thread, the entities are
+     * destroyed with a single packet when {@link #flushDestroyBatch()} is called.
+     *
+     * @param entityIds The entity ids to destroy.
+     */
+    public void destroyEntities(int... entityIds) {
+        List<ZNPCUser> pendingUsers = PENDING_DESTROY.get();
+        if (pendingUsers == null) {
+            sendPacket(createDestroyPacket(entityIds));
+            return;
+        }
+
+        synchronized (this) {
+            if (destroySize == 0)
+                pendingUsers.add(this);
+
+            if (destroySize + entityIds.length > destroyIds.length)
+                destroyIds = Arrays.copyOf(destroyIds, Math.max(destroySize + entityIds.length, destroyIds.length * 2));
+
+            System.arraycopy(entityIds, 0, destroyIds, destroySize, entityIds.length);
+            destroySize += entityIds.length;
+        }
+    }
+
+    /**
+     * Starts a destroy batch on the current thread, the entities destroyed will be
+     * collected until {@link #flushDestroyBatch()} is called.
+     */
+    public static void beginDestroyBatch() {
+        PENDING_DESTROY.set(new ArrayList<>());
+    }
+
+    /**
+     * Destroys the entities collected since {@link #beginDestroyBatch()} with a single packet per user.
+     */
+    public static void flushDestroyBatch() {
+        List<ZNPCUser> pendingUsers = PENDING_DESTROY.get();
+        if (pendingUsers == null)
+            return;
+
+        PENDING_DESTROY.remove();
+
+        for (ZNPCUser user : pendingUsers) {
+            int[] entityIds;
+            synchronized (user) {
+                entityIds = Arrays.copyOf(user.destroyIds, user.destroySize);
+                user.destroySize = 0;
+            }
+
+            if (entityIds.length > 0)
+                user.sendPacket(createDestroyPacket(entityIds));
+        }
+    }
+
+    /**
+     * Creates a packet to destroy entities.
+     *
+     * @param entityIds The entity ids to destroy.
+     * @return          The destroy packet.
+     */
+    private static Object createDestroyPacket(int[] entityIds) {
+        try {
+            return (Object) ClassTypes.PACKET_PLAY_OUT_ENTITY_DESTROY_HANDLE.invokeExact((Object) entityIds);
+        } catch (Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+    }
+
     /**
      * Gets player by user uuid.
      *
@@ -140,6 +456,75 @@ public class ZNPCUser {
         return Bukkit.getPlayer(getUuid());
     }
 
+    /**
+     * A packet encoded once for all its receivers.
+     *
+     * The packet is encoded by the first receiver to write it, the bytes are
+     * released once every receiver wrote the packet.
+     */
+    static final class ZNPCEncodedPacket {
+
+        /**
+         * The packet.
+         */
+        private final Object packet;
+
+        /**
+         * The receivers that did not write the packet yet.
+         */
+        private int remaining;
+
+        /**
+         * The encoded packet, {@code null} if not encoded yet.
+         */
+        private ByteBuf encoded;
+
+        /**
+         * Determines if the packet could not be encoded.
+         */
+        private boolean failed;
+
+        /**
+         * Creates a new encoded packet.
+         *
+         * @param packet    The packet.
+         * @param receivers The amount of receivers.
+         */
+        ZNPCEncodedPacket(Object packet, int receivers) {
+            this.packet = packet;
+            this.remaining = receivers;
+        }
+
+        /**
+         * Gets the encoded bytes for a receiver, encoding the packet if needed.
+         *
+         * @param context The receiver encoder context.
+         * @return        The encoded bytes, released when written, or {@code null} if the packet could not be encoded.
+         */
+        synchronized ByteBuf acquire(ChannelHandlerContext context) {
+            if (encoded == null && !failed) {
+                try {
+                    encoded = encode(context, packet);
+                } catch (Throwable throwable) {
+                    failed = true;
+                }
+            }
+
+            return encoded == null ? null : encoded.duplicate().retain();
+        }
+
+        /**
+         * Releases the encoded bytes once every receiver wrote the packet.
+         */
+        synchronized void release() {
+            if (--remaining > 0 || encoded == null)
+                return;
+
+            encoded.release();
+            encoded = null;
+        }
+    }
+
     /**
      * Listens when a player interact with an npc.
      *
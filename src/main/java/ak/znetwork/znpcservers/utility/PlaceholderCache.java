@@ -0,0 +1,287 @@
+package ak.znetwork.znpcservers.utility;
+
+import ak.znetwork.znpcservers.types.ConfigTypes;
+
+import org.apache.commons.lang.math.NumberUtils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the placeholders resolved for each player & text.
+ *
+ * <p>A cached text is resolved again once its refresh interval expires, the expired
+ * entries are refreshed in a batch by {@link #refreshExpired()}, until then the last
+ * resolved text is returned. Texts without placeholders are never resolved.</p>
+ *
+ * <p>The placeholders are only resolved from the main thread, a text used for the
+ * first time from another thread is not available until the next refresh.</p>
+ *
+ * <p>Copyright (c) ZNetwork, 2020.</p>
+ *
+ * @author ZNetwork
+ * @since 07/02/2020
+ */
+public final class PlaceholderCache {
+
+    /**
+     * The separator between a placeholder and its refresh interval.
+     */
+    private static final char INTERVAL_SEPARATOR = ':';
+
+    /**
+     * The ticks an entry is kept without being used.
+     */
+    private static final int EVICT_TICKS = 20 * 60;
+
+    /**
+     * The default refresh interval (in ticks).
+     */
+    private final int defaultInterval;
+
+    /**
+     * The refresh interval for each placeholder (in ticks).
+     */
+    private final Map<String, Integer> intervals;
+
+    /**
+     * The cached entries for each player, keyed by the raw text.
+     */
+    private final ConcurrentMap<UUID, ConcurrentMap<String, Entry>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * The entries waiting to be refreshed.
+     */
+    private final Queue<Entry> expiredEntries = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The cache hits, misses & refreshes.
+     */
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), refreshes = new LongAdder();
+
+    /**
+     * The current cache tick.
+     */
+    private volatile long tick;
+
+    /**
+     * Creates a new placeholder cache.
+     *
+     * @param defaultInterval The default refresh interval (in ticks), 0 = resolve on every tick.
+     * @param intervals       The refresh intervals for placeholders, each one as {@code placeholder:ticks}.
+     */
+    public PlaceholderCache(int defaultInterval,
+                            List<String> intervals) {
+        this.defaultInterval = defaultInterval;
+        this.intervals = new HashMap<>();
+
+        for (String interval : intervals) {
+            int separator = interval.lastIndexOf(INTERVAL_SEPARATOR);
+            if (separator <= 0)
+                continue;
+
+            this.intervals.put(interval.substring(0, separator), NumberUtils.toInt(interval.substring(separator + 1), defaultInterval));
+        }
+    }
+
+    /**
+     * Gets a text with the placeholders resolved for a player.
+     *
+     * Safe to call from any thread, the placeholders are only resolved here when
+     * called from the main thread, otherwise they are resolved in the next refresh.
+     *
+     * @param player The player.
+     * @param text   The raw text.
+     * @return       The text with the placeholders resolved, or {@code null} if it was not resolved yet.
+     */
+    public String get(Player player, String text) {
+        if (!PlaceholderUtils.hasPlaceholders(text))
+            return text.replace(ConfigTypes.SPACE_SYMBOL, " ");
+
+        ConcurrentMap<String, Entry> playerEntries = entries.computeIfAbsent(player.getUniqueId(), uuid -> new ConcurrentHashMap<>());
+
+        Entry entry = playerEntries.get(text);
+        if (entry == null) {
+            misses.increment();
+
+            Entry newEntry = new Entry(player.getUniqueId(), text, Math.max(1, getInterval(text)));
+            entry = playerEntries.putIfAbsent(text, newEntry);
+            if (entry == null)
+                entry = newEntry;
+        } else hits.increment();
+
+        entry.lastUse = tick;
+        // Resolved in the next refresh, a new entry is always expired
+        if (entry.expiresAt <= tick && entry.queued.compareAndSet(false, true))
+            expiredEntries.add(entry);
+
+        // The first use from the main thread does not wait for the refresh
+        if (entry.value == null && Bukkit.isPrimaryThread())
+            entry.resolve(player, tick);
+
+        return entry.value;
+    }
+
+    /**
+     * Resolves again the expired entries, must be called once per tick from the main thread.
+     */
+    public void refreshExpired() {
+        long currentTick = ++tick;
+
+        Entry entry;
+        while ((entry = expiredEntries.poll()) != null) {
+            entry.queued.set(false);
+
+            Player player = Bukkit.getPlayer(entry.uuid);
+            if (player == null)
+                continue;
+
+            entry.resolve(player, currentTick);
+            refreshes.increment();
+        }
+
+        if (currentTick % EVICT_TICKS == 0) {
+            entries.values().forEach(playerEntries -> playerEntries.values().removeIf(cachedEntry -> currentTick - cachedEntry.lastUse >= EVICT_TICKS));
+            entries.values().removeIf(Map::isEmpty);
+        }
+    }
+
+    /**
+     * Removes the cached entries of a player.
+     *
+     * @param uuid The player uuid.
+     */
+    public void invalidate(UUID uuid) {
+        entries.remove(uuid);
+    }
+
+    /**
+     * Gets the refresh interval for a text, the lowest interval of its placeholders.
+     *
+     * @param text The raw text.
+     * @return     The refresh interval (in ticks).
+     */
+    private int getInterval(String text) {
+        int interval = -1;
+        for (Map.Entry<String, Integer> placeholderInterval : intervals.entrySet()) {
+            if (text.contains(placeholderInterval.getKey()))
+                interval = interval == -1 ? placeholderInterval.getValue() : Math.min(interval, placeholderInterval.getValue());
+        }
+        return interval == -1 ? defaultInterval : interval;
+    }
+
+    /**
+     * Gets the cache hits.
+     *
+     * @return The cache hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the cache misses.
+     *
+     * @return The cache misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the entries resolved again after expiring.
+     *
+     * @return The cache refreshes.
+     */
+    public long getRefreshes() {
+        return refreshes.sum();
+    }
+
+    /**
+     * Gets the amount of cached entries.
+     *
+     * @return The amount of cached entries.
+     */
+    public int size() {
+        return entries.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * A resolved text for a player.
+     */
+    private static final class Entry {
+
+        /**
+         * The player uuid.
+         */
+        private final UUID uuid;
+
+        /**
+         * The raw text.
+         */
+        private final String text;
+
+        /**
+         * The refresh interval (in ticks).
+         */
+        private final int interval;
+
+        /**
+         * Determines if the entry is waiting to be refreshed.
+         */
+        private final AtomicBoolean queued = new AtomicBoolean();
+
+        /**
+         * The resolved text, {@code null} until the first refresh.
+         */
+        private volatile String value;
+
+        /**
+         * The tick when the entry expires.
+         */
+        private volatile long expiresAt;
+
+        /**
+         * The tick when the entry was last used.
+         */
+        private volatile long lastUse;
+
+        /**
+         * Creates a new entry.
+         *
+         * @param uuid     The player uuid.
+         * @param text     The raw text.
+         * @param interval The refresh interval (in ticks).
+         */
+        private Entry(UUID uuid,
+                      String text,
+                      int interval) {
+            this.uuid = uuid;
+            this.text = text;
+            this.interval = interval;
+        }
+
+        /**
+         * Resolves the text for the player.
+         *
+         * @param player The player.
+         * @param tick   The current cache tick.
+         */
+        private void resolve(Player player, long tick) {
+            value = PlaceholderUtils.getWithPlaceholders(player, text);
+            expiresAt = tick + interval;
+            lastUse = tick;
+        }
+    }
+}
@@ -13,7 +13,38 @@ import org.bukkit.entity.Player;
  */
 public class PlaceholderUtils {
 
+    /**
+     * The placeholder symbol.
+     */
+    private static final char PLACEHOLDER_SYMBOL = '%';
+
+    /**
+     * The resolved placeholders cache.
+     */
+    public static final PlaceholderCache CACHE = new PlaceholderCache(ConfigTypes.PLACEHOLDER_REFRESH_TICKS, ConfigTypes.PLACEHOLDER_REFRESH_INTERVALS);
+
     public static String getWithPlaceholders(Player player, String get) {
         return PlaceholderAPI.setPlaceholders(player, get).replace(ConfigTypes.SPACE_SYMBOL, " ");
     }
+
+    /**
+     * Checks if a text contains placeholders.
+     *
+     * @param text The text.
+     * @return {@code true} If the text contains placeholders.
+     */
+    public static boolean hasPlaceholders(String text) {
+        return text.indexOf(PLACEHOLDER_SYMBOL) != -1;
+    }
+
+    /**
+     * Gets a text with the placeholders resolved for a player, using the cached text if it did not expire.
+     *
+     * @param player The player.
+     * @param get    The raw text.
+     * @return       The text with the placeholders resolved, or {@code null} if it was not resolved yet.
+     */
+    public static String getCachedWithPlaceholders(Player player, String get) {
+        return CACHE.get(player, get);
+    }
 }
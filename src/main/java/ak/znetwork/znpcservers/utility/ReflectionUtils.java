@@ -1,11 +1,14 @@
 package ak.znetwork.znpcservers.utility;
 
-import ak.znetwork.znpcservers.types.ClassTypes;
 import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <p>Copyright (c) ZNetwork, 2020.</p>
@@ -15,32 +18,56 @@ import java.lang.reflect.InvocationTargetException;
  */
 public class ReflectionUtils {
 
+    /**
+     * The resolved field accessors of each class, keyed by field name.
+     */
+    private static final ClassValue<ConcurrentMap<String, FieldAccessor>> FIELD_ACCESSORS = new ClassValue<ConcurrentMap<String, FieldAccessor>>() {
+        @Override
+        protected ConcurrentMap<String, FieldAccessor> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * Sets the value of a declared field.
+     *
+     * @param instance The field owner.
+     * @param field    The field name.
+     * @param value    The new field value.
+     */
     public static void setValue(Object instance, String field, Object value) throws IllegalAccessException, NoSuchFieldException {
-        Field f = instance.getClass().getDeclaredField(field);
-        f.setAccessible(true);
-        f.set(instance, value);
+        getAccessor(instance.getClass(), field).set(instance, value);
     }
 
+    /**
+     * Gets the value of a declared field.
+     *
+     * @param instance The field owner.
+     * @param field    The field name.
+     * @return         The field value.
+     */
     public static Object getValue(Object instance, String field) throws NoSuchFieldException, IllegalAccessException {
-        Field f = instance.getClass().getDeclaredField(field);
-        f.setAccessible(true);
-        return f.get(instance);
+        return getAccessor(instance.getClass(), field).get(instance);
     }
 
     /**
-     * Sends the packet to a receiver.
+     * Gets the accessor of a declared field, the field is only resolved the first time.
      *
-     * @param player  The receiver of the packet.
-     * @param packets The packets to send.
+     * @param type  The field owner class.
+     * @param field The field name.
+     * @return      The field accessor.
      */
-    public static void sendPacket(Player player, Object... packets) {
-        try {
-            for (Object packet : packets) {
-                ClassTypes.SEND_PACKET_METHOD.invoke(ClassTypes.PLAYER_CONNECTION_FIELD.get(ClassTypes.GET_HANDLE_PLAYER_METHOD.invoke(player)), packet);
-            }
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            e.printStackTrace();
-        }
+    public static FieldAccessor getAccessor(Class<?> type, String field) throws NoSuchFieldException, IllegalAccessException {
+        ConcurrentMap<String, FieldAccessor> accessors = FIELD_ACCESSORS.get(type);
+
+        FieldAccessor accessor = accessors.get(field);
+        if (accessor != null)
+            return accessor;
+
+        accessor = new FieldAccessor(type.getDeclaredField(field));
+
+        FieldAccessor previous = accessors.putIfAbsent(field, accessor);
+        return previous != null ? previous : accessor;
     }
 
     /**
@@ -61,4 +88,89 @@ public class ReflectionUtils {
         String version = getBukkitPackage().replace("v", "").replace("R", "");
         return version.substring(2, version.length() - 2);
     }
+
+    /**
+     * A resolved field backed by method handles.
+     */
+    public static final class FieldAccessor {
+
+        /**
+         * The getter type.
+         */
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+        /**
+         * The setter type.
+         */
+        private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+        /**
+         * The field.
+         */
+        private final Field field;
+
+        /**
+         * The field getter.
+         */
+        private final MethodHandle getter;
+
+        /**
+         * The field setter, created on the first set since constant fields cannot be set.
+         */
+        private volatile MethodHandle setter;
+
+        /**
+         * Creates a new accessor for the given field.
+         *
+         * @param field The field.
+         */
+        private FieldAccessor(Field field) throws IllegalAccessException {
+            field.setAccessible(true);
+
+            this.field = field;
+            this.getter = ignoreOwner(MethodHandles.lookup().unreflectGetter(field)).asType(GETTER_TYPE);
+        }
+
+        /**
+         * Gets the field value.
+         *
+         * @param instance The field owner.
+         * @return         The field value.
+         */
+        public Object get(Object instance) {
+            try {
+                return (Object) getter.invokeExact(instance);
+            } catch (Throwable throwable) {
+                throw new AssertionError(throwable);
+            }
+        }
+
+        /**
+         * Sets the field value.
+         *
+         * @param instance The field owner.
+         * @param value    The new field value.
+         */
+        public void set(Object instance, Object value) throws IllegalAccessException {
+            MethodHandle setter = this.setter;
+            if (setter == null)
+                this.setter = setter = ignoreOwner(MethodHandles.lookup().unreflectSetter(field)).asType(SETTER_TYPE);
+
+            try {
+                setter.invokeExact(instance, value);
+            } catch (Throwable throwable) {
+                throw new AssertionError(throwable);
+            }
+        }
+
+        /**
+         * Adds an ignored owner parameter to the handle of a static field.
+         *
+         * @param handle The field handle.
+         * @return       The field handle taking the owner as first parameter.
+         */
+        private MethodHandle ignoreOwner(MethodHandle handle) {
+            return Modifier.isStatic(field.getModifiers()) ? MethodHandles.dropArguments(handle, 0, Object.class) : handle;
+        }
+    }
 }
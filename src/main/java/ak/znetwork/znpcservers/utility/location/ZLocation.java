@@ -81,12 +81,25 @@ public class ZLocation {
         if (locationCache != null)
             return locationCache;
 
-        return locationCache = new Location(Bukkit.getWorld(getWorld()),
+        Location location = new Location(Bukkit.getWorld(getWorld()),
                 getX(),
                 getY(),
                 getZ(),
                 getYaw(),
                 getPitch()
         );
+
+        // Don't cache the location until the world is loaded
+        if (location.getWorld() != null)
+            locationCache = location;
+
+        return location;
+    }
+
+    /**
+     * Clears the saved location, called when the world is unloaded.
+     */
+    public void invalidate() {
+        locationCache = null;
     }
 }